@@ -0,0 +1,169 @@
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Fails when a hot path allocates more per call than its budget.
+ *
+ * Bytes are read from the current thread's allocation counter
+ * ({@code com.sun.management.ThreadMXBean}) around each call, after a warm-up
+ * long enough for the JIT to compile the path. Budgets are the bytes measured
+ * when the path last changed, plus a little headroom. The validation paths
+ * have a budget of zero. If a change lowers a figure, lower its budget to
+ * match. If it raises one, either find the new allocation or raise the
+ * budget in the same commit with a reason.
+ */
+public class AllocationBudgetTest {
+
+    private static final int WARMUP = 20_000;
+    private static final int MEASURED = 5_000;
+
+    /** Upper-case lookups in both word lists. */
+    private static final long IS_VALID_WORD_BUDGET = 0;
+    /** Bounds and conflict checks on both boards. */
+    private static final long CAN_PLACE_BUDGET = 0;
+    /** Undo snapshot, the rows the move wrote in the published position, and the result; about 2.7 KB measured on a 15x15 board. */
+    private static final long PLAY_WORD_BUDGET = 3_072;
+    /** State pushed onto the other stack plus the published position; about 4.4 KB measured. */
+    private static final long UNDO_BUDGET = 5_120;
+    private static final long REDO_BUDGET = 5_120;
+    /** XML parsing of the four files in boards/; about 330 KB measured. */
+    private static final long LOAD_LIBRARY_BUDGET = 400_000;
+
+    private static final Scrabble_Model.Placement OPENING =
+            new Scrabble_Model.Placement(7, 6, Scrabble_Model.Placement.Direction.ACROSS, "HI");
+
+    private com.sun.management.ThreadMXBean threads;
+
+    @Before
+    public void setup() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        threads = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    @Test
+    public void testIsValidWordStaysWithinBudget() {
+        Dictionary dictionary = new Dictionary("words.txt");
+        Scrabble_Model.Dictionary nested = new Scrabble_Model.Dictionary(Arrays.asList("HELLO", "WORLD"));
+        boolean[] sink = new boolean[1];
+        assertWithinBudget("Dictionary.isValidWord", IS_VALID_WORD_BUDGET, WARMUP, () -> {
+            sink[0] ^= dictionary.isValidWord("HELLO");
+            sink[0] ^= dictionary.isValidWord("QZXQ");
+        });
+        assertWithinBudget("Scrabble_Model.Dictionary.isValidWord", IS_VALID_WORD_BUDGET, WARMUP,
+                () -> sink[0] ^= nested.isValidWord("WORLD"));
+    }
+
+    @Test
+    public void testCanPlaceStaysWithinBudget() {
+        Board board = new Board();
+        board.place(new Placement(7, 7, Placement.Direction.ACROSS, "CAT"));
+        Placement crossing = new Placement(6, 8, Placement.Direction.DOWN, "BAD");
+        Placement conflict = new Placement(7, 7, Placement.Direction.DOWN, "DOG");
+        Scrabble_Model.Board nested = new Scrabble_Model.Board();
+        nested.place(new Scrabble_Model.Placement(7, 7, Scrabble_Model.Placement.Direction.ACROSS, "CAT"));
+        Scrabble_Model.Placement nestedCrossing =
+                new Scrabble_Model.Placement(6, 8, Scrabble_Model.Placement.Direction.DOWN, "BAD");
+        StringBuilder reason = new StringBuilder(64);
+        boolean[] sink = new boolean[1];
+        assertWithinBudget("Board.canPlace", CAN_PLACE_BUDGET, WARMUP, () -> {
+            reason.setLength(0);
+            sink[0] ^= board.canPlace(crossing, reason);
+            sink[0] ^= board.canPlace(conflict, reason);
+            sink[0] ^= nested.canPlace(nestedCrossing, reason);
+        });
+    }
+
+    @Test
+    public void testPlayWordStaysWithinBudget() {
+        Scrabble_Model model = openingModel();
+        long[] total = new long[1];
+        for (int i = 0; i < WARMUP + MEASURED; i++) {
+            long before = threads.getCurrentThreadAllocatedBytes();
+            Scrabble_Model.MoveResult result = model.playWord(OPENING);
+            long used = threads.getCurrentThreadAllocatedBytes() - before;
+            assertTrue(result.getMessage(), result.isSuccess());
+            model.undo();
+            if (i >= WARMUP) {
+                total[0] += used;
+            }
+        }
+        assertBudget("Scrabble_Model.playWord", PLAY_WORD_BUDGET, total[0] / MEASURED);
+    }
+
+    @Test
+    public void testUndoAndRedoStayWithinBudget() {
+        Scrabble_Model model = openingModel();
+        assertTrue(model.playWord(OPENING).isSuccess());
+        long undoBytes = 0;
+        long redoBytes = 0;
+        for (int i = 0; i < WARMUP + MEASURED; i++) {
+            long before = threads.getCurrentThreadAllocatedBytes();
+            assertTrue(model.undo());
+            long middle = threads.getCurrentThreadAllocatedBytes();
+            assertTrue(model.redo());
+            long after = threads.getCurrentThreadAllocatedBytes();
+            if (i >= WARMUP) {
+                undoBytes += middle - before;
+                redoBytes += after - middle;
+            }
+        }
+        assertBudget("Scrabble_Model.undo", UNDO_BUDGET, undoBytes / MEASURED);
+        assertBudget("Scrabble_Model.redo", REDO_BUDGET, redoBytes / MEASURED);
+    }
+
+    @Test
+    public void testLoadLibraryStaysWithinBudget() {
+        assertWithinBudget("BoardConfigLoader.loadLibrary", LOAD_LIBRARY_BUDGET, 20, () -> {
+            try {
+                BoardConfigLoader.loadLibrary(Paths.get("boards"));
+            } catch (IOException ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+    }
+
+    /** Warms {@code operation} up, then checks its mean allocation over a measured run. */
+    private void assertWithinBudget(String name, long budget, int warmup, Runnable operation) {
+        for (int i = 0; i < warmup; i++) {
+            operation.run();
+        }
+        int measured = Math.max(1, warmup / 4);
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < measured; i++) {
+            operation.run();
+        }
+        assertBudget(name, budget, (threads.getCurrentThreadAllocatedBytes() - before) / measured);
+    }
+
+    private static void assertBudget(String name, long budget, long bytesPerCall) {
+        assertTrue(name + " allocated " + bytesPerCall + " bytes per call; budget is " + budget,
+                bytesPerCall <= budget);
+    }
+
+    /** A two-player game whose first player holds H and I, so the opening can be replayed after each undo. */
+    private static Scrabble_Model openingModel() {
+        BoardConfigLoader.BoardLayout classic;
+        try {
+            classic = BoardConfigLoader.loadLibrary(Paths.get("boards")).require("Classic");
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+        Scrabble_Model model = new Scrabble_Model(classic, new Scrabble_Model.Dictionary(Arrays.asList("HI")), 3L);
+        model.setupPlayers(2);
+        model.getCurrentPlayer().setRack(Arrays.asList(Scrabble_Model.Letter.H, Scrabble_Model.Letter.I,
+                Scrabble_Model.Letter.E, Scrabble_Model.Letter.R, Scrabble_Model.Letter.S,
+                Scrabble_Model.Letter.T, Scrabble_Model.Letter.A));
+        return model;
+    }
+}
@@ -0,0 +1,252 @@
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Letters, tile values and tile distributions loaded from an XML file in
+ * {@code alphabets/}.
+ *
+ * Letters get dense indices 0..N-1 in file order and the blank is index N,
+ * so every per-letter table ({@link TileCounts}, {@link Rack}, the rules
+ * kernel) is a plain array. Characters map to indices through a direct
+ * lookup table covering both cases, so {@link #indexOf(char)} is a single
+ * array read and never allocates or throws. The bundled English alphabet
+ * lists A-Z in order with the values of {@link Letter}, and
+ * {@link #english()} refuses a file that disagrees with the enums.
+ */
+public final class Alphabet {
+    /** Most letters an alphabet may define; racks pack 32 counts including the blank. */
+    public static final int MAX_LETTERS = 31;
+
+    /** System property naming an English alphabet file to use instead of the bundled one. */
+    public static final String ENGLISH_PROPERTY = "scrabble.alphabet";
+
+    private static final String ENGLISH_RESOURCE = "/alphabets/english.xml";
+    private static final Path ENGLISH_FILE = Paths.get("alphabets", "english.xml");
+    private static volatile Alphabet english;
+
+    private final String name;
+    private final char[] letters;
+    private final int[] points;
+    private final short[] indexByChar;
+    private final Map<String, int[]> distributions;
+
+    private Alphabet(String name, char[] letters, int[] points, Map<String, int[]> distributions) {
+        this.name = name;
+        this.letters = letters;
+        this.points = points;
+        this.distributions = distributions;
+        int highest = 0;
+        for (char letter : letters) {
+            highest = Math.max(highest, Math.max(Character.toLowerCase(letter), Character.toUpperCase(letter)));
+        }
+        this.indexByChar = new short[highest + 1];
+        Arrays.fill(indexByChar, (short) -1);
+        for (int i = 0; i < letters.length; i++) {
+            indexByChar[letters[i]] = (short) i;
+            indexByChar[Character.toLowerCase(letters[i])] = (short) i;
+            indexByChar[Character.toUpperCase(letters[i])] = (short) i;
+        }
+    }
+
+    /**
+     * Loads the English alphabet on first use. The file named by the
+     * {@link #ENGLISH_PROPERTY} system property wins; otherwise
+     * {@code alphabets/english.xml} is read from the classpath, or from the
+     * working directory when running from a source checkout.
+     *
+     * @return the English alphabet
+     * @throws UncheckedIOException when the file cannot be read
+     * @throws IllegalStateException when its letters or values differ from {@link Letter}
+     */
+    public static Alphabet english() {
+        Alphabet result = english;
+        if (result == null) {
+            synchronized (Alphabet.class) {
+                result = english;
+                if (result == null) {
+                    String configured = System.getProperty(ENGLISH_PROPERTY);
+                    String source = configured != null ? configured : ENGLISH_RESOURCE;
+                    try {
+                        result = configured != null ? load(Paths.get(configured)) : loadBundledEnglish();
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                    requireEnglish(result, source);
+                    english = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static Alphabet loadBundledEnglish() throws IOException {
+        try (InputStream in = Alphabet.class.getResourceAsStream(ENGLISH_RESOURCE)) {
+            if (in != null) {
+                return parse(in, ENGLISH_RESOURCE, ENGLISH_FILE.getFileName().toString());
+            }
+        }
+        return load(ENGLISH_FILE);
+    }
+
+    /**
+     * Checks that {@code alphabet} can stand in for the {@link Letter} enums:
+     * A-Z at their ordinals, the blank after Z, and the same face values,
+     * since scoring reads the enums and the tables read the alphabet.
+     *
+     * @throws IllegalStateException naming the first mismatch
+     */
+    static void requireEnglish(Alphabet alphabet, String source) {
+        if (alphabet.blankIndex() != Letter.BLANK.ordinal()) {
+            throw new IllegalStateException(source + " must list exactly the letters A-Z.");
+        }
+        for (Letter letter : Letter.values()) {
+            int index = letter == Letter.BLANK ? alphabet.blankIndex() : alphabet.indexOf(letter.name().charAt(0));
+            if (index != letter.ordinal()) {
+                throw new IllegalStateException(source + " must list the letters A-Z in order.");
+            }
+            if (alphabet.points(index) != letter.getPoints()
+                    || alphabet.points(index) != Scrabble_Model.Letter.values()[index].getPoints()) {
+                throw new IllegalStateException(source + " gives " + letter + " " + alphabet.points(index)
+                        + " points; the Letter enums give " + letter.getPoints() + ".");
+            }
+        }
+    }
+
+    /**
+     * Parses an alphabet definition: {@code <letter char points>} elements,
+     * one {@code <blank points>}, and any number of named
+     * {@code <distribution blanks>} elements holding {@code <tile letter count>}.
+     */
+    public static Alphabet load(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return parse(in, file.toString(), file.getFileName().toString());
+        }
+    }
+
+    /**
+     * @param source where the definition came from, for error messages
+     * @param fallbackName name used when the root element has none
+     */
+    private static Alphabet parse(InputStream in, String source, String fallbackName) throws IOException {
+        try {
+            Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(in);
+            Element root = document.getDocumentElement();
+            String name = root.getAttribute("name");
+            if (name.isEmpty()) {
+                name = fallbackName;
+            }
+
+            NodeList letterNodes = root.getElementsByTagName("letter");
+            int count = letterNodes.getLength();
+            if (count == 0 || count > MAX_LETTERS) {
+                throw new IOException("Alphabet " + name + " must define between 1 and " + MAX_LETTERS + " letters.");
+            }
+            char[] letters = new char[count];
+            int[] points = new int[count + 1];
+            for (int i = 0; i < count; i++) {
+                Element element = (Element) letterNodes.item(i);
+                String token = element.getAttribute("char");
+                if (token.length() != 1) {
+                    throw new IOException("Letter in " + name + " must be a single character: '" + token + "'");
+                }
+                letters[i] = Character.toUpperCase(token.charAt(0));
+                points[i] = Integer.parseInt(element.getAttribute("points"));
+            }
+            NodeList blank = root.getElementsByTagName("blank");
+            if (blank.getLength() > 0) {
+                points[count] = Integer.parseInt(((Element) blank.item(0)).getAttribute("points"));
+            }
+
+            Alphabet lookup = new Alphabet(name, letters, points, Collections.emptyMap());
+            Map<String, int[]> distributions = new LinkedHashMap<>();
+            NodeList distributionNodes = root.getElementsByTagName("distribution");
+            for (int d = 0; d < distributionNodes.getLength(); d++) {
+                Element element = (Element) distributionNodes.item(d);
+                int[] counts = new int[count + 1];
+                String blanks = element.getAttribute("blanks");
+                counts[count] = blanks.isEmpty() ? 0 : Integer.parseInt(blanks);
+                NodeList tiles = element.getElementsByTagName("tile");
+                for (int t = 0; t < tiles.getLength(); t++) {
+                    Element tile = (Element) tiles.item(t);
+                    String letter = tile.getAttribute("letter");
+                    int index = letter.length() == 1 ? lookup.indexOf(letter.charAt(0)) : -1;
+                    if (index < 0) {
+                        throw new IOException("Unknown letter '" + letter + "' in distribution of " + name);
+                    }
+                    counts[index] = Integer.parseInt(tile.getAttribute("count"));
+                }
+                distributions.put(element.getAttribute("name"), counts);
+            }
+            return new Alphabet(name, letters, points, Collections.unmodifiableMap(distributions));
+        } catch (IOException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new IOException("Failed to parse alphabet file " + source + ": " + ex.getMessage(), ex);
+        }
+    }
+
+    /** @return display name of the alphabet. */
+    public String getName() {
+        return name;
+    }
+
+    /** @return number of letters, not counting the blank. */
+    public int letterCount() {
+        return letters.length;
+    }
+
+    /** @return index of the blank, equal to {@link #letterCount()}. */
+    public int blankIndex() {
+        return letters.length;
+    }
+
+    /** @return number of distinct tiles, letters plus the blank. */
+    public int tileKinds() {
+        return letters.length + 1;
+    }
+
+    /**
+     * Maps a character to its letter index, in either case.
+     *
+     * @return the index, or -1 when the character is not a letter of this alphabet
+     */
+    public int indexOf(char ch) {
+        return ch < indexByChar.length ? indexByChar[ch] : -1;
+    }
+
+    /** @return the upper-case character of a letter index. */
+    public char letterAt(int index) {
+        return letters[index];
+    }
+
+    /** @return face value of a tile index; the blank's value for {@link #blankIndex()}. */
+    public int points(int index) {
+        return points[index];
+    }
+
+    /**
+     * @return tile counts of the named distribution, indexed like the letters
+     *         with the blank last; a fresh array the caller may keep
+     * @throws IllegalArgumentException when no such distribution is defined
+     */
+    public int[] distribution(String distributionName) {
+        int[] counts = distributions.get(distributionName);
+        if (counts == null) {
+            throw new IllegalArgumentException("Alphabet " + name + " has no distribution " + distributionName);
+        }
+        return counts.clone();
+    }
+}
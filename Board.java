@@ -1,19 +1,40 @@
 /**
- Purpose: Owns the 15×15 grid, validates placements (bounds/overwrite/reuse),
- and renders the board in text.
+ Purpose: Owns the square grid (15×15 by default), validates placements
+ (bounds/overwrite/reuse), and renders the board in text.
 */
 
 
 public class Board {
 
-    public static final int SIZE = 15;// rows A-O and col 1-15
+    public static final int SIZE = 15;// standard board: rows A-O and col 1-15
+    public static final int MAX_SIZE = 26;// rows are labelled A-Z
     private static final char EMPTY = '\0';// empty cell render as '.'
 
 
-    private final char[][] grid = new char[SIZE][SIZE];
+    private final int size;
+    private final char[][] grid;
 
     public Board(){
-        //Nothing needed — Java fills char arrays with '\0' automatically.
+        this(SIZE);
+    }
+
+    /**
+     * @param size number of rows and columns, 1 to {@link #MAX_SIZE}
+     */
+    public Board(int size) {
+        if (size < 1 || size > MAX_SIZE) {
+            throw new IllegalArgumentException("Board size must be between 1 and " + MAX_SIZE + ".");
+        }
+        this.size = size;
+        //Java fills char arrays with '\0' automatically.
+        this.grid = new char[size][size];
+    }
+
+    /**
+     * @return number of rows, equal to the number of columns
+     */
+    public int size() {
+        return size;
     }
 
     /**
@@ -21,11 +42,11 @@ public class Board {
      * @return the grid layout of the board with labels for both rows and cols
      */
     public String render() {
-        StringBuilder sb = new StringBuilder();
+        StringBuilder sb = new StringBuilder((size + 1) * (3 * size + 5));
 
 
         sb.append("    "); // 4 spaces to align under row letters
-        for (int col = 1; col <= 15; col++) {
+        for (int col = 1; col <= size; col++) {
 
             if (col < 10) {
                 sb.append(" ").append(col).append(" ");
@@ -35,12 +56,12 @@ public class Board {
         }
         sb.append("\n");
 
-        // 2. Each board row (A–O)
-        for (int row = 0; row < 15; row++) {
+        // 2. Each board row (A, B, C, ...)
+        for (int row = 0; row < size; row++) {
             char rowLabel = (char) ('A' + row); // Convert 0→A, 1→B, etc.
             sb.append(rowLabel).append(" | ");   // Row label + divider
 
-            for (int col = 0; col < 15; col++) {
+            for (int col = 0; col < size; col++) {
                 char value = grid[row][col];
                 // Print '.' if empty; otherwise the letter on the board
                 if (value == '\0') {
@@ -63,7 +84,43 @@ public class Board {
      */
     public boolean inBounds(int row, int col)
     {
-        return row >= 0 && row < 15 && col >= 0 && col < 15;
+        return row >= 0 && row < size && col >= 0 && col < size;
+    }
+
+    /**
+     *
+     * @param row the row number
+     * @param col the column number
+     * @return the letter at the square, or '\0' when empty or out of bounds
+     */
+    public char getCell(int row, int col) {
+        if (!inBounds(row, col)) {
+            return EMPTY;
+        }
+        return grid[row][col];
+    }
+
+    /**
+     * @return a copy of the grid, '\0' marking empty squares
+     */
+    public char[][] snapshot() {
+        char[][] copy = new char[size][];
+        for (int r = 0; r < size; r++) {
+            copy[r] = grid[r].clone();
+        }
+        return copy;
+    }
+
+    /**
+     * @param state grid previously returned by {@link #snapshot()} on a board of the same size
+     */
+    public void restore(char[][] state) {
+        if (state.length != size) {
+            throw new IllegalArgumentException("Snapshot is " + state.length + " rows, board is " + size + ".");
+        }
+        for (int r = 0; r < size; r++) {
+            System.arraycopy(state[r], 0, grid[r], 0, size);
+        }
     }
 
     /**
@@ -65,6 +65,10 @@ public final class BoardConfigLoader {
         if (!sizeAttr.isEmpty()) {
             size = Integer.parseInt(sizeAttr);
         }
+        if (size < 1 || size > Scrabble_Model.Board.MAX_SIZE) {
+            throw new IllegalArgumentException("Board size " + size + " in " + name + " must be between 1 and "
+                    + Scrabble_Model.Board.MAX_SIZE);
+        }
 
         PremiumSquare[][] grid = new PremiumSquare[size][size];
         for (int r = 0; r < size; r++) {
@@ -94,6 +98,7 @@ public final class BoardConfigLoader {
     public static final class BoardLayout {
         private final String name;
         private final PremiumSquare[][] squares;
+        private final CompiledLayout compiled;
 
         public BoardLayout(String name, PremiumSquare[][] squares) {
             this.name = name;
@@ -101,6 +106,7 @@ public final class BoardConfigLoader {
             for (int r = 0; r < squares.length; r++) {
                 System.arraycopy(squares[r], 0, this.squares[r], 0, squares[r].length);
             }
+            this.compiled = CompiledLayout.compile(name, this.squares);
         }
 
         public String getName() {
@@ -111,6 +117,11 @@ public final class BoardConfigLoader {
             return squares.length;
         }
 
+        /** @return the shared flat form of this layout used for scoring. */
+        public CompiledLayout compiled() {
+            return compiled;
+        }
+
         public PremiumSquare[][] copySquares() {
             PremiumSquare[][] copy = new PremiumSquare[squares.length][squares[0].length];
             for (int r = 0; r < squares.length; r++) {
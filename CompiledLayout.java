@@ -0,0 +1,162 @@
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Immutable premium-square layout compiled to flat multiplier tables.
+ *
+ * Letter and word multipliers are stored as {@code byte[]} indexed by
+ * {@code row * size + col}, which is what {@link RulesKernel#score} reads.
+ * Layouts are interned by id, and every game on the same board shares one
+ * instance. The id is the layout name plus a hash of its squares. It is
+ * the same in every run, and two different layouts that share a name still
+ * get different ids. Snapshots and saves record the id together with the
+ * name and squares, and {@link #resolve} uses the id as a fast path, so a save
+ * still loads after its board file changed or in a JVM that never loaded it.
+ * Java serialization goes through the same path and yields the interned
+ * instance.
+ */
+public final class CompiledLayout implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final PremiumSquare[] SQUARES = PremiumSquare.values();
+    private static final ConcurrentMap<String, CompiledLayout> REGISTRY = new ConcurrentHashMap<>();
+
+    private final String id;
+    private final String name;
+    private final int size;
+    private final byte[] squares;
+    final byte[] letterMultipliers;
+    final byte[] wordMultipliers;
+
+    private CompiledLayout(String id, String name, int size, byte[] squares) {
+        this.id = id;
+        this.name = name;
+        this.size = size;
+        this.squares = squares;
+        this.letterMultipliers = new byte[squares.length];
+        this.wordMultipliers = new byte[squares.length];
+        for (int i = 0; i < squares.length; i++) {
+            PremiumSquare square = SQUARES[squares[i]];
+            letterMultipliers[i] = (byte) square.letterMultiplier();
+            wordMultipliers[i] = (byte) square.wordMultiplier();
+        }
+    }
+
+    /**
+     * Compiles {@code layout}, or returns the instance already registered for
+     * the same name and squares.
+     *
+     * @param layout square grid of premiums; it is not retained
+     */
+    public static CompiledLayout compile(String name, PremiumSquare[][] layout) {
+        int size = layout.length;
+        byte[] squares = new byte[size * size];
+        long hash = 0xcbf29ce484222325L;
+        for (int r = 0; r < size; r++) {
+            if (layout[r].length != size) {
+                throw new IllegalArgumentException("Layout " + name + " is not square.");
+            }
+            for (int c = 0; c < size; c++) {
+                int ordinal = layout[r][c].ordinal();
+                squares[r * size + c] = (byte) ordinal;
+                hash = (hash ^ ordinal) * 0x100000001b3L;
+            }
+        }
+        String id = name + "@" + size + ":" + Long.toHexString(hash);
+        return REGISTRY.computeIfAbsent(id, key -> new CompiledLayout(key, name, size, squares));
+    }
+
+    /**
+     * @return the registered layout with that id
+     * @throws IllegalArgumentException when no layout with that id has been compiled
+     */
+    public static CompiledLayout forId(String id) {
+        CompiledLayout layout = REGISTRY.get(id);
+        if (layout == null) {
+            throw new IllegalArgumentException("Unknown board layout: " + id);
+        }
+        return layout;
+    }
+
+    /**
+     * @return the layout registered under {@code id}, or {@code layout}
+     *         compiled under {@code name} when this JVM has not seen that id
+     */
+    public static CompiledLayout resolve(String id, String name, PremiumSquare[][] layout) {
+        CompiledLayout known = REGISTRY.get(id);
+        return known != null ? known : compile(name, layout);
+    }
+
+    /** @return a fresh copy of the premium grid, enough to {@link #compile} the layout again. */
+    public PremiumSquare[][] toGrid() {
+        PremiumSquare[][] grid = new PremiumSquare[size][size];
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                grid[r][c] = SQUARES[squares[r * size + c]];
+            }
+        }
+        return grid;
+    }
+
+    private Object writeReplace() {
+        return new SerializedForm(this);
+    }
+
+    private void readObject(ObjectInputStream in) throws InvalidObjectException {
+        throw new InvalidObjectException("Compiled layouts are read through their serialized form.");
+    }
+
+    /** @return stable identifier recorded by snapshots and saves. */
+    public String getId() {
+        return id;
+    }
+
+    /** @return display name of the layout. */
+    public String getName() {
+        return name;
+    }
+
+    /** @return number of rows, equal to the number of columns. */
+    public int size() {
+        return size;
+    }
+
+    /** @return the premium at a square. */
+    public PremiumSquare premiumAt(int row, int col) {
+        return SQUARES[squares[row * size + col]];
+    }
+
+    /** @return letter multiplier at a square. */
+    public int letterMultiplier(int row, int col) {
+        return letterMultipliers[row * size + col];
+    }
+
+    /** @return word multiplier at a square. */
+    public int wordMultiplier(int row, int col) {
+        return wordMultipliers[row * size + col];
+    }
+
+    /** What a serialized layout holds: enough to find it again, or to compile it afresh. */
+    private static final class SerializedForm implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final String id;
+        private final String name;
+        private final PremiumSquare[][] squares;
+
+        SerializedForm(CompiledLayout layout) {
+            this.id = layout.id;
+            this.name = layout.name;
+            this.squares = layout.toGrid();
+        }
+
+        private Object readResolve() throws InvalidObjectException {
+            try {
+                return resolve(id, name, squares);
+            } catch (RuntimeException ex) {
+                throw new InvalidObjectException("Unreadable board layout " + id + ": " + ex.getMessage());
+            }
+        }
+    }
+}
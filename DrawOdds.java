@@ -0,0 +1,321 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Exact draw probabilities over a pool of tiles, such as the unseen pool
+ * from {@link UnseenTiles#unseenBy}.
+ *
+ * A draw of {@code n} tiles from the pool is hypergeometric: each way of
+ * taking {@code k_i} of the {@code K_i} copies of every tile is equally
+ * likely. {@link #exactly} is a single product of binomials. The "contains"
+ * queries sum that product over every split of the draw between the letters
+ * the query names, with all other tiles lumped together. Enumerated plainly
+ * that is up to C(draws + letters, letters) splits, millions for a rack
+ * against a query naming twenty letters. So the sum is built letter by letter
+ * and memoized on (letter, tiles left, options still reachable); a branch
+ * ends as soon as one option is covered or none can be. A query over
+ * {@code m} named letters and {@code o} options therefore costs at most
+ * {@code m * (draws + 1)} states per reachable subset of options, each
+ * summing {@code draws + 1} terms. Options only drop out along a branch, so
+ * in practice the subsets number a handful, not 2^o. Binomials come from a
+ * shared Pascal table, and answers are cached by pool, draw size and query,
+ * so repeated questions about the same position cost one map lookup. Not
+ * thread-safe; give each bot or game its own instance.
+ */
+public final class DrawOdds {
+    /** Largest pool the binomial table covers. */
+    public static final int MAX_POOL = 256;
+    /** Most options one "contains" query may list. */
+    public static final int MAX_OPTIONS = Long.SIZE;
+
+    private static final double[] BINOMIALS = buildBinomials();
+    private static final int EXACTLY = 0;
+    private static final int CONTAINS_ANY = 1;
+
+    private final Map<Query, Double> cache;
+    private final Map<State, Double> memo = new HashMap<>();
+    private int[] letters = new int[0];
+    private int[] rest = new int[1];
+    private long[] doneBy = new long[1];
+    private int relevant;
+    private int[] pool;
+    private int[][] wanted;
+
+    /** Creates an engine that caches the last 1024 answers. */
+    public DrawOdds() {
+        this(1024);
+    }
+
+    /** @param cacheSize number of answers kept before the least recently used is dropped */
+    public DrawOdds(int cacheSize) {
+        this.cache = new LinkedHashMap<Query, Double>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Query, Double> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * @return the number of ways to choose {@code k} of {@code n} tiles, or 0
+     *         when {@code k} is outside 0..n
+     * @throws IllegalArgumentException when {@code n} exceeds {@link #MAX_POOL}
+     */
+    public static double choose(int n, int k) {
+        if (n > MAX_POOL) {
+            throw new IllegalArgumentException("Pool of " + n + " tiles exceeds " + MAX_POOL);
+        }
+        if (k < 0 || n < 0 || k > n) {
+            return 0;
+        }
+        return BINOMIALS[n * (n + 1) / 2 + k];
+    }
+
+    /**
+     * @param pool tile counts to draw from, indexed like the alphabet; negative counts count as 0,
+     *             and indices past its end hold no tiles
+     * @param draws number of tiles drawn
+     * @param rack tile counts the draw must equal
+     * @return probability that the {@code draws} tiles are exactly {@code rack}
+     */
+    public double exactly(int[] pool, int draws, int[] rack) {
+        return lookup(EXACTLY, pool, draws, new int[][] {rack});
+    }
+
+    /** @return probability that the draw contains every tile of {@code tiles}. */
+    public double containsAll(int[] pool, int draws, int[] tiles) {
+        return lookup(CONTAINS_ANY, pool, draws, new int[][] {tiles});
+    }
+
+    /**
+     * @param options tile counts, each indexed like the alphabet
+     * @return probability that the draw contains every tile of at least one of {@code options}
+     * @throws IllegalArgumentException when more than {@link #MAX_OPTIONS} options are given
+     */
+    public double containsAny(int[] pool, int draws, int[]... options) {
+        if (options.length > MAX_OPTIONS) {
+            throw new IllegalArgumentException("At most " + MAX_OPTIONS + " options per query, got " + options.length);
+        }
+        return lookup(CONTAINS_ANY, pool, draws, options);
+    }
+
+    /** Drops every cached answer. */
+    public void clearCache() {
+        cache.clear();
+    }
+
+    private double lookup(int kind, int[] pool, int draws, int[][] options) {
+        Query probe = new Query(kind, pool, draws, options);
+        Double cached = cache.get(probe);
+        if (cached != null) {
+            return cached;
+        }
+        double result = kind == EXACTLY ? computeExactly(pool, draws, options[0]) : computeContainsAny(pool, draws, options);
+        cache.put(probe.copy(), result);
+        return result;
+    }
+
+    private static double computeExactly(int[] pool, int draws, int[] rack) {
+        for (int i = pool.length; i < rack.length; i++) {
+            if (rack[i] > 0) {
+                return 0;
+            }
+        }
+        int total = 0;
+        int size = 0;
+        double ways = 1;
+        for (int i = 0; i < pool.length; i++) {
+            int available = Math.max(0, pool[i]);
+            int taken = i < rack.length ? rack[i] : 0;
+            total += available;
+            size += taken;
+            ways *= choose(available, taken);
+        }
+        if (size != draws || draws > total) {
+            return 0;
+        }
+        return ways / choose(total, draws);
+    }
+
+    private double computeContainsAny(int[] pool, int draws, int[][] options) {
+        if (letters.length < pool.length) {
+            letters = new int[pool.length];
+            rest = new int[pool.length + 1];
+            doneBy = new long[pool.length + 1];
+        }
+        int total = 0;
+        relevant = 0;
+        for (int i = 0; i < pool.length; i++) {
+            total += Math.max(0, pool[i]);
+            for (int[] option : options) {
+                if (i < option.length && option[i] > 0) {
+                    letters[relevant++] = i;
+                    break;
+                }
+            }
+        }
+        if (draws > total || options.length == 0) {
+            return 0;
+        }
+        // rest[d]: tiles not yet split at depth d. doneBy[d]: options needing nothing from depth d on.
+        rest[relevant] = total;
+        for (int d = 0; d < relevant; d++) {
+            rest[relevant] -= Math.max(0, pool[letters[d]]);
+        }
+        for (int d = relevant; d > 0; d--) {
+            rest[d - 1] = rest[d] + Math.max(0, pool[letters[d - 1]]);
+        }
+        Arrays.fill(doneBy, 0, relevant + 1, 0L);
+        for (int o = 0; o < options.length; o++) {
+            int last = -1;
+            for (int d = 0; d < relevant; d++) {
+                if (letters[d] < options[o].length && options[o][letters[d]] > 0) {
+                    last = d;
+                }
+            }
+            for (int d = last + 1; d <= relevant; d++) {
+                doneBy[d] |= 1L << o;
+            }
+        }
+        this.pool = pool;
+        this.wanted = options;
+        long possible = 0;
+        for (int o = 0; o < options.length; o++) {
+            if (!needsMissingTile(options[o], pool.length)) {
+                possible |= 1L << o;
+            }
+        }
+        double ways = walk(0, draws, possible);
+        this.pool = null;
+        this.wanted = null;
+        memo.clear();
+        return ways / choose(total, draws);
+    }
+
+    /** @return true when {@code option} asks for a tile at an index the pool does not have. */
+    private static boolean needsMissingTile(int[] option, int poolLength) {
+        for (int i = poolLength; i < option.length; i++) {
+            if (option[i] > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Counts the ways to split {@code left} tiles among the named letters
+     * from {@code depth} on and the unnamed tiles, such that at least one
+     * option in {@code reachable} ends up covered.
+     */
+    private double walk(int depth, int left, long reachable) {
+        if (reachable == 0) {
+            return 0;
+        }
+        if ((reachable & doneBy[depth]) != 0) {
+            return choose(rest[depth], left);
+        }
+        State state = new State(depth, left, reachable);
+        Double known = memo.get(state);
+        if (known != null) {
+            return known;
+        }
+        int letter = letters[depth];
+        int available = Math.max(0, pool[letter]);
+        double sum = 0;
+        for (int taken = 0; taken <= Math.min(available, left); taken++) {
+            long still = reachable;
+            for (long bits = reachable; bits != 0; bits &= bits - 1) {
+                int[] option = wanted[Long.numberOfTrailingZeros(bits)];
+                if (letter < option.length && option[letter] > taken) {
+                    still &= ~Long.lowestOneBit(bits);
+                }
+            }
+            sum += choose(available, taken) * walk(depth + 1, left - taken, still);
+        }
+        memo.put(state, sum);
+        return sum;
+    }
+
+    private static double[] buildBinomials() {
+        double[] table = new double[(MAX_POOL + 1) * (MAX_POOL + 2) / 2];
+        for (int n = 0; n <= MAX_POOL; n++) {
+            int row = n * (n + 1) / 2;
+            table[row] = 1;
+            table[row + n] = 1;
+            for (int k = 1; k < n; k++) {
+                int above = (n - 1) * n / 2;
+                table[row + k] = table[above + k - 1] + table[above + k];
+            }
+        }
+        return table;
+    }
+
+    /** Memo key for one step of the walk. */
+    private static final class State {
+        private final int depth;
+        private final int left;
+        private final long reachable;
+
+        State(int depth, int left, long reachable) {
+            this.depth = depth;
+            this.left = left;
+            this.reachable = reachable;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof State)) {
+                return false;
+            }
+            State state = (State) other;
+            return depth == state.depth && left == state.left && reachable == state.reachable;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * depth + left) + Long.hashCode(reachable);
+        }
+    }
+
+    /** Cache key; probes wrap the caller's arrays and only stored keys copy them. */
+    private static final class Query {
+        private final int kind;
+        private final int[] pool;
+        private final int draws;
+        private final int[][] options;
+        private final int hash;
+
+        Query(int kind, int[] pool, int draws, int[][] options) {
+            this.kind = kind;
+            this.pool = pool;
+            this.draws = draws;
+            this.options = options;
+            this.hash = 31 * (31 * (31 * kind + draws) + Arrays.hashCode(pool)) + Arrays.deepHashCode(options);
+        }
+
+        Query copy() {
+            int[][] optionsCopy = new int[options.length][];
+            for (int i = 0; i < options.length; i++) {
+                optionsCopy[i] = options[i].clone();
+            }
+            return new Query(kind, pool.clone(), draws, optionsCopy);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Query)) {
+                return false;
+            }
+            Query query = (Query) other;
+            return kind == query.kind && draws == query.draws && hash == query.hash
+                    && Arrays.equals(pool, query.pool) && Arrays.deepEquals(options, query.options);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
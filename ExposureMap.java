@@ -0,0 +1,146 @@
+import java.util.Arrays;
+
+/**
+ * Per-square measure of the premium scoring a square opens up to the next
+ * player.
+ *
+ * Every empty premium square has a weight: one point per extra letter
+ * multiple and three per extra word multiple. That gives DL 1, TL 2, DW 3
+ * and TW 6. A word of up to a rack's length through a square can reach the
+ * premiums {@link #REACH} squares either side of it on its row and column.
+ * So a square's exposure is the total weight of the empty premiums in that
+ * window on both lines. Only squares a move can actually be played through
+ * count: an empty square next to a tile has its exposure, and every other
+ * square has 0. Evaluators can sum the exposure of the squares a move
+ * opens to penalise dangerous openings.
+ *
+ * Values are kept in a flat array, so {@link #exposure} is one read. A
+ * placement changes the premiums in view only on its own rows and columns,
+ * and which squares are playable only next to them. {@link #update}
+ * therefore recomputes just those rows and columns, each with one prefix
+ * sum over the line.
+ */
+public final class ExposureMap {
+    /** Squares either side that a rack-length word through a square can reach. */
+    public static final int REACH = RulesKernel.BINGO_TILES - 1;
+
+    private final CompiledLayout layout;
+    private final int size;
+    private final int[] weights;
+    private final int[] rowReach;
+    private final int[] colReach;
+    private final int[] exposure;
+    private final int[] prefix;
+    private final boolean[] dirtyRows;
+    private final boolean[] dirtyCols;
+
+    public ExposureMap(CompiledLayout layout) {
+        this.layout = layout;
+        this.size = layout.size();
+        this.weights = new int[size * size];
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                weights[r * size + c] = (layout.letterMultiplier(r, c) - 1) + 3 * (layout.wordMultiplier(r, c) - 1);
+            }
+        }
+        this.rowReach = new int[size * size];
+        this.colReach = new int[size * size];
+        this.exposure = new int[size * size];
+        this.prefix = new int[size + 1];
+        this.dirtyRows = new boolean[size];
+        this.dirtyCols = new boolean[size];
+    }
+
+    /** Recomputes every square from {@code grid}, for boards not built move by move. */
+    public void rebuild(char[][] grid) {
+        for (int i = 0; i < size; i++) {
+            reachAlongRow(grid, i);
+            reachAlongCol(grid, i);
+        }
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                combine(grid, r, c);
+            }
+        }
+    }
+
+    /**
+     * Brings the map up to date after tiles were placed on {@code grid}.
+     *
+     * @param placedSquares the new tiles as {@code row * size + col}, see {@link RulesKernel#placedSquares}
+     */
+    public void update(char[][] grid, int[] placedSquares) {
+        for (int square : placedSquares) {
+            int r = square / size;
+            int c = square % size;
+            for (int d = -1; d <= 1; d++) {
+                if (r + d >= 0 && r + d < size) {
+                    dirtyRows[r + d] = true;
+                }
+                if (c + d >= 0 && c + d < size) {
+                    dirtyCols[c + d] = true;
+                }
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            if (dirtyRows[i]) {
+                reachAlongRow(grid, i);
+            }
+            if (dirtyCols[i]) {
+                reachAlongCol(grid, i);
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            if (dirtyRows[i]) {
+                for (int c = 0; c < size; c++) {
+                    combine(grid, i, c);
+                }
+            }
+            if (dirtyCols[i]) {
+                for (int r = 0; r < size; r++) {
+                    combine(grid, r, i);
+                }
+            }
+        }
+        Arrays.fill(dirtyRows, false);
+        Arrays.fill(dirtyCols, false);
+    }
+
+    /** @return premium weight reachable through an empty square next to a tile, otherwise 0. */
+    public int exposure(int row, int col) {
+        return exposure[row * size + col];
+    }
+
+    /** @return the layout the weights come from. */
+    public CompiledLayout getLayout() {
+        return layout;
+    }
+
+    private void reachAlongRow(char[][] grid, int row) {
+        prefix[0] = 0;
+        for (int c = 0; c < size; c++) {
+            prefix[c + 1] = prefix[c] + (grid[row][c] == '\0' ? weights[row * size + c] : 0);
+        }
+        for (int c = 0; c < size; c++) {
+            rowReach[row * size + c] = prefix[Math.min(size, c + REACH + 1)] - prefix[Math.max(0, c - REACH)];
+        }
+    }
+
+    private void reachAlongCol(char[][] grid, int col) {
+        prefix[0] = 0;
+        for (int r = 0; r < size; r++) {
+            prefix[r + 1] = prefix[r] + (grid[r][col] == '\0' ? weights[r * size + col] : 0);
+        }
+        for (int r = 0; r < size; r++) {
+            colReach[r * size + col] = prefix[Math.min(size, r + REACH + 1)] - prefix[Math.max(0, r - REACH)];
+        }
+    }
+
+    private void combine(char[][] grid, int r, int c) {
+        boolean playable = grid[r][c] == '\0'
+                && ((r > 0 && grid[r - 1][c] != '\0') || (r + 1 < size && grid[r + 1][c] != '\0')
+                || (c > 0 && grid[r][c - 1] != '\0') || (c + 1 < size && grid[r][c + 1] != '\0'));
+        int square = r * size + c;
+        exposure[square] = playable ? rowReach[square] + colReach[square] : 0;
+    }
+}
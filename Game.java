@@ -1,10 +1,10 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.EnumMap;
 import java.util.List;
-import java.util.Locale;
-import java.util.Map;
 import java.util.Objects;
 import java.util.Scanner;
 
@@ -14,6 +14,8 @@ import java.util.Scanner;
  */
 public class Game {
     private static final int RACK_SIZE = 7;
+    private static final int SNAPSHOT_VERSION = 5;
+    private static final CompiledLayout CLASSIC = CompiledLayout.compile("Classic", buildBonusGrid());
 
     private final Board board;
     private final TileBag tileBag;
@@ -21,7 +23,12 @@ public class Game {
     private final List<Player> players;
     private final char[][] boardState;
     private final boolean[][] blankSquares;
-    private final SquareBonus[][] bonuses;
+    private final CompiledLayout layout;
+    private final RulesKernel rules;
+    private final ExposureMap exposure;
+    private int[] lastPlacedSquares = new int[0];
+    private final NotationTokenizer notationTokenizer = new NotationTokenizer();
+    private final UnseenTiles unseen = new UnseenTiles(Alphabet.english().distribution(TileBag.DISTRIBUTION));
 
     private int currentPlayerIndex = 0;
     private int consecutivePasses = 0;
@@ -38,29 +45,225 @@ public class Game {
      * Constructs a game with a specified dictionary file.
      */
     public Game(List<String> playerNames, String dictionaryPath) {
+        this(playerNames, new Dictionary(dictionaryPath));
+    }
+
+    /**
+     * Constructs a game that validates words against an already loaded dictionary.
+     * The dictionary is only read after construction, so many games may share it.
+     */
+    public Game(List<String> playerNames, Dictionary dictionary) {
+        this(playerNames, dictionary, GameRandom.newSeed());
+    }
+
+    /**
+     * Constructs a game whose tile draws are fully determined by {@code seed},
+     * so the same seed and moves always replay to the same result.
+     */
+    public Game(List<String> playerNames, Dictionary dictionary, long seed) {
+        this(playerNames, dictionary, seed, CLASSIC);
+    }
+
+    /**
+     * Constructs a seeded game on the given premium layout. The board takes
+     * its size from the layout, so 21x21 and other custom boards work as long
+     * as rows fit the letters A-Z.
+     */
+    public Game(List<String> playerNames, Dictionary dictionary, long seed, CompiledLayout layout) {
         Objects.requireNonNull(playerNames, "playerNames");
         if (playerNames.size() < 2 || playerNames.size() > 4) {
             throw new IllegalArgumentException("Scrabble requires between 2 and 4 players.");
         }
-        this.board = new Board();
-        this.tileBag = new TileBag();
-        this.dictionary = new Dictionary(dictionaryPath);
+        this.layout = Objects.requireNonNull(layout, "layout");
+        this.board = new Board(layout.size());
+        this.rules = new RulesKernel(layout.size());
+        this.exposure = new ExposureMap(layout);
+        this.tileBag = new TileBag(seed);
+        this.dictionary = Objects.requireNonNull(dictionary, "dictionary");
         this.players = new ArrayList<>();
         for (String name : playerNames) {
             Player p = new Player(Objects.requireNonNull(name, "player name"));
             players.add(p);
         }
-        this.boardState = new char[Board.SIZE][Board.SIZE];
-        this.blankSquares = new boolean[Board.SIZE][Board.SIZE];
-        this.bonuses = buildBonusGrid();
+        this.boardState = new char[layout.size()][layout.size()];
+        this.blankSquares = new boolean[layout.size()][layout.size()];
         dealInitialHands();
     }
 
+    /**
+     * Rebuilds a game from restored parts without dealing any tiles.
+     */
+    private Game(List<Player> players, TileBag tileBag, Dictionary dictionary, CompiledLayout layout) {
+        this.layout = layout;
+        this.board = new Board(layout.size());
+        this.rules = new RulesKernel(layout.size());
+        this.exposure = new ExposureMap(layout);
+        this.tileBag = tileBag;
+        this.dictionary = dictionary;
+        this.players = players;
+        this.boardState = new char[layout.size()][layout.size()];
+        this.blankSquares = new boolean[layout.size()][layout.size()];
+    }
+
+    /**
+     * Writes the complete game state in a compact binary form: the layout
+     * as one byte per square, occupied squares only, one byte per rack tile,
+     * and the bag as per-letter counts plus its random state so later draws
+     * repeat exactly.
+     */
+    public void writeSnapshot(DataOutput out) throws IOException {
+        out.writeByte(SNAPSHOT_VERSION);
+        out.writeLong(tileBag.getSeed());
+        writeLayout(out, layout);
+        out.writeByte(players.size());
+        for (Player player : players) {
+            out.writeUTF(player.getName());
+            out.writeInt(player.getScore());
+            writeLetters(out, player.snapshotRack());
+        }
+        int[] bagCounts = new int[TileCounts.LETTERS];
+        tileBag.copyCounts(bagCounts);
+        for (int count : bagCounts) {
+            out.writeByte(count);
+        }
+        out.writeLong(tileBag.getRandomState());
+
+        int size = layout.size();
+        int tilesOnBoard = rules.tilesOnBoard();
+        out.writeShort(tilesOnBoard);
+        for (int r = 0; r < size && tilesOnBoard > 0; r++) {
+            for (int c = 0; c < size; c++) {
+                if (boardState[r][c] != '\0') {
+                    out.writeShort(r * size + c);
+                    out.writeByte(boardState[r][c]);
+                    out.writeBoolean(blankSquares[r][c]);
+                }
+            }
+        }
+
+        out.writeByte(currentPlayerIndex);
+        out.writeByte(consecutivePasses);
+        out.writeBoolean(gameOver);
+    }
+
+    /**
+     * Reads a game written by {@link #writeSnapshot(DataOutput)}.
+     *
+     * @param dictionary word list the restored game validates against
+     */
+    public static Game readSnapshot(DataInput in, Dictionary dictionary) throws IOException {
+        int version = in.readUnsignedByte();
+        if (version != SNAPSHOT_VERSION) {
+            throw new IOException("Unsupported game snapshot version " + version);
+        }
+        long seed = in.readLong();
+        CompiledLayout layout = readLayout(in);
+        int playerCount = in.readUnsignedByte();
+        List<Player> players = new ArrayList<>(playerCount);
+        for (int i = 0; i < playerCount; i++) {
+            Player player = new Player(in.readUTF());
+            player.setScore(in.readInt());
+            player.setRack(readLetters(in));
+            players.add(player);
+        }
+        int[] bagCounts = new int[TileCounts.LETTERS];
+        for (int i = 0; i < bagCounts.length; i++) {
+            bagCounts[i] = in.readUnsignedByte();
+        }
+        TileBag bag = new TileBag(seed);
+        bag.restore(bagCounts, in.readLong());
+        Game game = new Game(players, bag, Objects.requireNonNull(dictionary, "dictionary"), layout);
+
+        int size = layout.size();
+        int occupied = in.readUnsignedShort();
+        for (int i = 0; i < occupied; i++) {
+            int square = in.readUnsignedShort();
+            int r = square / size;
+            int c = square % size;
+            game.boardState[r][c] = (char) in.readUnsignedByte();
+            game.blankSquares[r][c] = in.readBoolean();
+        }
+        game.board.restore(game.boardState);
+        game.rules.sync(game.boardState);
+        game.exposure.rebuild(game.boardState);
+        game.unseen.rebuild(Alphabet.english().distribution(TileBag.DISTRIBUTION),
+                game.boardState, game.blankSquares, Alphabet.english());
+
+        game.currentPlayerIndex = in.readUnsignedByte();
+        game.consecutivePasses = in.readUnsignedByte();
+        game.gameOver = in.readBoolean();
+        return game;
+    }
+
+    private static void writeLayout(DataOutput out, CompiledLayout layout) throws IOException {
+        out.writeUTF(layout.getId());
+        out.writeUTF(layout.getName());
+        out.writeByte(layout.size());
+        for (int r = 0; r < layout.size(); r++) {
+            for (int c = 0; c < layout.size(); c++) {
+                out.writeByte(layout.premiumAt(r, c).ordinal());
+            }
+        }
+    }
+
+    private static CompiledLayout readLayout(DataInput in) throws IOException {
+        String id = in.readUTF();
+        String name = in.readUTF();
+        int size = in.readUnsignedByte();
+        PremiumSquare[] values = PremiumSquare.values();
+        PremiumSquare[][] squares = new PremiumSquare[size][size];
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                int ordinal = in.readUnsignedByte();
+                if (ordinal >= values.length) {
+                    throw new IOException("Unknown premium square " + ordinal + " in layout " + name);
+                }
+                squares[r][c] = values[ordinal];
+            }
+        }
+        return CompiledLayout.resolve(id, name, squares);
+    }
+
+    private static void writeLetters(DataOutput out, List<Letter> letters) throws IOException {
+        out.writeShort(letters.size());
+        for (Letter letter : letters) {
+            out.writeByte(letter.ordinal());
+        }
+    }
+
+    private static List<Letter> readLetters(DataInput in) throws IOException {
+        Letter[] values = Letter.values();
+        int count = in.readUnsignedShort();
+        List<Letter> letters = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            letters.add(values[in.readUnsignedByte()]);
+        }
+        return letters;
+    }
+
     /** @return immutable view of the players in seating order. */
     public List<Player> getPlayers() {
         return Collections.unmodifiableList(players);
     }
 
+    /** @return the premium layout, which also fixes the board size. */
+    public CompiledLayout getLayout() {
+        return layout;
+    }
+
+    /** @return premium exposure of every square, kept current after each move. */
+    public ExposureMap getExposure() {
+        return exposure;
+    }
+
+    /**
+     * @return tracker of tiles off the board; pass a player's rack to
+     *         {@link UnseenTiles#unseenBy} for the tiles that player cannot see
+     */
+    public UnseenTiles getUnseenTiles() {
+        return unseen;
+    }
+
     /** @return the Board instance used for play. */
     public Board getBoard() {
         return board;
@@ -71,6 +274,11 @@ public class Game {
         return players.get(currentPlayerIndex);
     }
 
+    /** @return the seed the tile bag was shuffled with. */
+    public long getSeed() {
+        return tileBag.getSeed();
+    }
+
     /** @return number of tiles left in the bag. */
     public int tilesRemaining() {
         return tileBag.size();
@@ -95,33 +303,32 @@ public class Game {
      * @return detailed outcome of the move.
      */
     public MoveResult playTurn(String notation) {
-        Placement play;
-        try {
-            play = parseNotation(notation);
-        } catch (IllegalArgumentException ex) {
-            return MoveResult.failure(ex.getMessage());
+        int parsed = notationTokenizer.parse(notation, layout.size());
+        if (parsed != NotationTokenizer.OK) {
+            return MoveResult.failure(NotationTokenizer.describe(parsed, layout.size()));
         }
+        Placement play = new Placement(notationTokenizer.row(), notationTokenizer.col(),
+                notationTokenizer.across() ? Placement.Direction.ACROSS : Placement.Direction.DOWN,
+                notationTokenizer.word(notation));
 
         if (!dictionary.isValidWord(play.getWord())) {
             return MoveResult.failure("Word '" + play.getWord() + "' is not in the dictionary.");
         }
 
         Player current = getCurrentPlayer();
-        StringBuilder reason = new StringBuilder();
-        if (!board.canPlace(play, reason)) {
-            String message = reason.length() > 0 ? reason.toString() : "Cannot place word on board.";
-            return MoveResult.failure(message);
-        }
-
-        TileUsage usage = planTileUsage(current, play);
-        if (usage == null) {
-            return MoveResult.failure("Rack does not contain the needed letters.");
-        }
-
-        int scored = scorePlacement(play, usage);
-        consumeTilesForPlacement(current, play, usage);
+        int status = rules.plan(boardState, play.getRow(), play.getCol(),
+                play.getDirection() == Placement.Direction.ACROSS, play.getWord(), current.getRack());
+        if (status != RulesKernel.OK) {
+            return MoveResult.failure(RulesKernel.describe(status));
+        }
+
+        int scored = rules.score(blankSquares, layout);
+        rules.consume(current.getRack());
+        rules.apply(boardState, blankSquares, play.getWord());
+        unseen.recordPlay(rules);
+        lastPlacedSquares = rules.placedSquares(boardState.length);
+        exposure.update(boardState, lastPlacedSquares);
         board.place(play);
-        applyToBoardState(play, usage);
         current.addPoints(scored);
         refillRack(current);
 
@@ -134,8 +341,36 @@ public class Game {
         return MoveResult.success(scored, "Played " + play.getWord() + " for " + scored + " points.");
     }
 
+    /**
+     * Checks every placement against the current board and {@code rack}
+     * without changing the game, unpacking the rack once for the whole batch.
+     *
+     * @param rack tiles to play from, usually the current player's rack
+     */
+    public MoveBatch evaluatePlacements(List<Placement> placements, Rack rack) {
+        MoveBatch batch = new MoveBatch(placements.size());
+        rules.loadRack(rack);
+        for (int i = 0; i < placements.size(); i++) {
+            Placement play = placements.get(i);
+            int status = rules.plan(boardState, play.getRow(), play.getCol(),
+                    play.getDirection() == Placement.Direction.ACROSS, play.getWord());
+            if (status == RulesKernel.OK && !dictionary.isValidWord(play.getWord())) {
+                status = RulesKernel.NOT_A_WORD;
+            }
+            int score = status == RulesKernel.OK ? rules.score(blankSquares, layout) : 0;
+            batch.record(i, status, score);
+        }
+        return batch;
+    }
+
+    /** @return seat index of the player to move. */
+    public int getCurrentPlayerIndex() {
+        return currentPlayerIndex;
+    }
+
     /** Active player passes without playing a word. */
     public void passTurn() {
+        lastPlacedSquares = new int[0];
         consecutivePasses++;
         if (consecutivePasses >= players.size() * 2) {
             gameOver = true;
@@ -144,6 +379,14 @@ public class Game {
         }
     }
 
+    /**
+     * @return squares, as {@code row * size + col}, where the last turn put
+     *         new tiles; empty after a pass
+     */
+    public int[] getLastPlacedSquares() {
+        return lastPlacedSquares.clone();
+    }
+
     /** @return whether the game has reached an end condition. */
     public boolean isGameOver() {
         return gameOver;
@@ -277,190 +520,27 @@ public class Game {
         currentPlayerIndex = (currentPlayerIndex + 1) % players.size();
     }
 
-    private void applyToBoardState(Placement play, TileUsage usage) {
-        int r = play.getRow();
-        int c = play.getCol();
-        for (int i = 0; i < play.getWord().length(); i++) {
-            if (boardState[r][c] == '\0') {
-                boardState[r][c] = play.getWord().charAt(i);
-                blankSquares[r][c] = usage.isBlankAt(i);
-            }
-            if (play.getDirection() == Placement.Direction.ACROSS) {
-                c++;
-            } else {
-                r++;
-            }
-        }
-    }
-
     private void checkGameEndAfterPlay(Player current) {
         if (current.handSize() == 0 && tileBag.isEmpty()) {
             gameOver = true;
         }
     }
 
-    private int scorePlacement(Placement play, TileUsage usage) {
-        int wordMultiplier = 1;
-        int total = 0;
-
-        int r = play.getRow();
-        int c = play.getCol();
-        for (int i = 0; i < play.getWord().length(); i++) {
-            boolean newTile = boardState[r][c] == '\0';
-            int letterScore;
-            if (newTile) {
-                letterScore = usage.isBlankAt(i) ? 0 : letterFor(play.getWord().charAt(i)).getPoints();
-            } else {
-                letterScore = blankSquares[r][c] ? 0 : letterFor(boardState[r][c]).getPoints();
-            }
-
-            SquareBonus bonus = bonuses[r][c];
-            if (newTile) {
-                letterScore *= bonus.letterMultiplier;
-                wordMultiplier *= bonus.wordMultiplier;
-            }
-            total += letterScore;
-
-            if (play.getDirection() == Placement.Direction.ACROSS) {
-                c++;
-            } else {
-                r++;
-            }
-        }
-
-        if (usage.newTileCount == RACK_SIZE) {
-            total += 50; // bingo bonus
-        }
-        return total * wordMultiplier;
-    }
-
-    private TileUsage planTileUsage(Player player, Placement play) {
-        Map<Letter, Integer> rackCounts = new EnumMap<>(Letter.class);
-        for (Tile tile : player.getHand()) {
-            rackCounts.merge(tile.getLetter(), 1, Integer::sum);
-        }
-
-        int r = play.getRow();
-        int c = play.getCol();
-        List<Boolean> blanks = new ArrayList<>(play.getWord().length());
-        int newTiles = 0;
-
-        for (int i = 0; i < play.getWord().length(); i++) {
-            if (boardState[r][c] == '\0') {
-                newTiles++;
-                Letter needed = letterFor(play.getWord().charAt(i));
-                int available = rackCounts.getOrDefault(needed, 0);
-                if (available > 0) {
-                    rackCounts.put(needed, available - 1);
-                    blanks.add(Boolean.FALSE);
-                } else {
-                    int blankCount = rackCounts.getOrDefault(Letter.BLANK, 0);
-                    if (blankCount == 0) {
-                        return null;
-                    }
-                    rackCounts.put(Letter.BLANK, blankCount - 1);
-                    blanks.add(Boolean.TRUE);
-                }
-            } else {
-                blanks.add(null);
-            }
-
-            if (play.getDirection() == Placement.Direction.ACROSS) {
-                c++;
-            } else {
-                r++;
-            }
-        }
-
-        return new TileUsage(blanks, newTiles);
-    }
-
-    private void consumeTilesForPlacement(Player player, Placement play, TileUsage usage) {
-        int r = play.getRow();
-        int c = play.getCol();
-        for (int i = 0; i < play.getWord().length(); i++) {
-            if (boardState[r][c] == '\0') {
-                if (usage.isBlankAt(i)) {
-                    if (player.takeTile(Letter.BLANK) == null) {
-                        throw new IllegalStateException("Expected blank tile during placement.");
-                    }
-                } else {
-                    Letter needed = letterFor(play.getWord().charAt(i));
-                    if (player.takeTile(needed) == null) {
-                        throw new IllegalStateException("Expected tile " + needed + " during placement.");
-                    }
-                }
-            }
-
-            if (play.getDirection() == Placement.Direction.ACROSS) {
-                c++;
-            } else {
-                r++;
-            }
-        }
-    }
-
-    private static Placement parseNotation(String notation) {
-        if (notation == null) {
-            throw new IllegalArgumentException("Notation required.");
-        }
-        String[] tokens = notation.trim().split("\\s+");
-        if (tokens.length < 2 || tokens.length > 3) {
-            throw new IllegalArgumentException("Notation must be '<coord> <word> [A|D]'.");
-        }
-        String coord = tokens[0].toUpperCase(Locale.ROOT);
-        if (coord.length() < 2) {
-            throw new IllegalArgumentException("Coordinate must resemble 'H8'.");
-        }
-
-        char rowChar = coord.charAt(0);
-        if (rowChar < 'A' || rowChar > 'O') {
-            throw new IllegalArgumentException("Row must fall between A and O.");
-        }
-        int row = rowChar - 'A';
-        int col;
-        try {
-            col = Integer.parseInt(coord.substring(1)) - 1;
-        } catch (NumberFormatException ex) {
-            throw new IllegalArgumentException("Column must be numeric.", ex);
-        }
-        if (col < 0 || col >= Board.SIZE) {
-            throw new IllegalArgumentException("Column must fall between 1 and 15.");
-        }
-
-        String word = tokens[1].toUpperCase(Locale.ROOT);
-        if (word.isEmpty()) {
-            throw new IllegalArgumentException("Word required.");
-        }
-
-        Placement.Direction direction = Placement.Direction.ACROSS;
-        if (tokens.length == 3) {
-            String dirToken = tokens[2].toUpperCase(Locale.ROOT);
-            if (dirToken.startsWith("D")) {
-                direction = Placement.Direction.DOWN;
-            } else if (!dirToken.startsWith("A")) {
-                throw new IllegalArgumentException("Direction must be A or D.");
-            }
-        }
-
-        return new Placement(row, col, direction, word);
-    }
-
-    private static SquareBonus[][] buildBonusGrid() {
-        SquareBonus[][] layout = new SquareBonus[Board.SIZE][Board.SIZE];
+    private static PremiumSquare[][] buildBonusGrid() {
+        PremiumSquare[][] layout = new PremiumSquare[Board.SIZE][Board.SIZE];
         for (int r = 0; r < Board.SIZE; r++) {
             for (int c = 0; c < Board.SIZE; c++) {
-                layout[r][c] = SquareBonus.NORMAL;
+                layout[r][c] = PremiumSquare.NORMAL;
             }
         }
 
-        set(layout, SquareBonus.TRIPLE_WORD, new int[][]{
+        set(layout, PremiumSquare.TRIPLE_WORD, new int[][]{
                 {0, 0}, {0, 7}, {0, 14},
                 {7, 0}, {7, 14},
                 {14, 0}, {14, 7}, {14, 14}
         });
 
-        set(layout, SquareBonus.DOUBLE_WORD, new int[][]{
+        set(layout, PremiumSquare.DOUBLE_WORD, new int[][]{
                 {1, 1}, {2, 2}, {3, 3}, {4, 4},
                 {1, 13}, {2, 12}, {3, 11}, {4, 10},
                 {10, 4}, {11, 3}, {12, 2}, {13, 1},
@@ -468,14 +548,14 @@ public class Game {
                 {7, 7}
         });
 
-        set(layout, SquareBonus.TRIPLE_LETTER, new int[][]{
+        set(layout, PremiumSquare.TRIPLE_LETTER, new int[][]{
                 {1, 5}, {1, 9},
                 {5, 1}, {5, 5}, {5, 9}, {5, 13},
                 {9, 1}, {9, 5}, {9, 9}, {9, 13},
                 {13, 5}, {13, 9}
         });
 
-        set(layout, SquareBonus.DOUBLE_LETTER, new int[][]{
+        set(layout, PremiumSquare.DOUBLE_LETTER, new int[][]{
                 {0, 3}, {0, 11},
                 {2, 6}, {2, 8},
                 {3, 0}, {3, 7}, {3, 14},
@@ -489,47 +569,12 @@ public class Game {
         return layout;
     }
 
-    private static void set(SquareBonus[][] layout, SquareBonus bonus, int[][] coords) {
+    private static void set(PremiumSquare[][] layout, PremiumSquare bonus, int[][] coords) {
         for (int[] coord : coords) {
             layout[coord[0]][coord[1]] = bonus;
         }
     }
 
-    private Letter letterFor(char ch) {
-        return Letter.valueOf(String.valueOf(Character.toUpperCase(ch)));
-    }
-
-    private enum SquareBonus {
-        NORMAL(1, 1),
-        DOUBLE_LETTER(2, 1),
-        TRIPLE_LETTER(3, 1),
-        DOUBLE_WORD(1, 2),
-        TRIPLE_WORD(1, 3);
-
-        final int letterMultiplier;
-        final int wordMultiplier;
-
-        SquareBonus(int letterMultiplier, int wordMultiplier) {
-            this.letterMultiplier = letterMultiplier;
-            this.wordMultiplier = wordMultiplier;
-        }
-    }
-
-    private static final class TileUsage {
-        private final List<Boolean> blanks;
-        private final int newTileCount;
-
-        TileUsage(List<Boolean> blanks, int newTileCount) {
-            this.blanks = blanks;
-            this.newTileCount = newTileCount;
-        }
-
-        boolean isBlankAt(int index) {
-            Boolean flag = blanks.get(index);
-            return flag != null && flag;
-        }
-    }
-
     public static final class MoveResult {
         private final boolean success;
         private final String message;
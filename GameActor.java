@@ -0,0 +1,84 @@
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Single-writer wrapper around one game model.
+ *
+ * Neither {@link Game} nor {@link Scrabble_Model} is thread-safe, so a hosted
+ * model is only ever touched by commands submitted here. At most one drain task
+ * is scheduled at a time, which serializes commands for this game without a
+ * lock while other actors run in parallel on the same executor.
+ *
+ * @param <T> model type owned by the actor
+ */
+public final class GameActor<T> {
+    private final T game;
+    private final Executor executor;
+    private final Queue<Runnable> mailbox = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+    public GameActor(T game, Executor executor) {
+        this.game = Objects.requireNonNull(game, "game");
+        this.executor = Objects.requireNonNull(executor, "executor");
+    }
+
+    /**
+     * Queues a command behind everything already submitted to this actor.
+     *
+     * @param command work to run against the model; must not leak the model
+     * @return future completed with the command's result or exception
+     */
+    public <R> CompletableFuture<R> submit(Function<? super T, ? extends R> command) {
+        CompletableFuture<R> future = new CompletableFuture<>();
+        mailbox.add(() -> {
+            try {
+                future.complete(command.apply(game));
+            } catch (Throwable ex) {
+                // Errors too: the caller must not wait forever on a command that died.
+                future.completeExceptionally(ex);
+            }
+        });
+        schedule();
+        return future;
+    }
+
+    /**
+     * Returns the model without going through the mailbox. Only for reading
+     * fields that are safe to share across threads, such as volatile
+     * timestamps; everything else must go through {@link #submit}.
+     */
+    public T peek() {
+        return game;
+    }
+
+    /** @return true when no command is queued or running. */
+    public boolean isIdle() {
+        return !scheduled.get() && mailbox.isEmpty();
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        try {
+            Runnable task;
+            while ((task = mailbox.poll()) != null) {
+                task.run();
+            }
+        } finally {
+            scheduled.set(false);
+        }
+        // A command may have arrived between the last poll and the reset.
+        if (!mailbox.isEmpty()) {
+            schedule();
+        }
+    }
+}
@@ -0,0 +1,170 @@
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Tournament chess-style clock for one game: a time bank per player, time
+ * added after each move, and overtime penalties.
+ *
+ * Only the player to move has a running clock. When their bank runs out they
+ * enter overtime. Each overtime period they start costs
+ * {@link Settings#overtimePenalty()} points. When the last allowed period is
+ * used up their flag falls, and the host passes the turn for them. That
+ * counts toward the pass limit, as {@link Game#passTurn()} does, and can end
+ * the game.
+ *
+ * The clock only does arithmetic on {@link System#nanoTime()} readings passed
+ * in by its owner. Its owner, the game's actor in {@link GameHost}, asks
+ * {@link #nanosUntilNextEvent} when to look again and schedules that on a
+ * {@link TimerWheel}. A player whose flag has fallen has no time left on
+ * later turns either, so each of those turns is passed as soon as it
+ * starts. Not thread-safe.
+ */
+public final class GameClock {
+    private final Settings settings;
+    private final long[] remaining;
+    private final int[] periodsCharged;
+    private int running = -1;
+    private long runningSince;
+    private long turn;
+
+    public GameClock(Settings settings, int players) {
+        this.settings = Objects.requireNonNull(settings, "settings");
+        this.remaining = new long[players];
+        this.periodsCharged = new int[players];
+        Arrays.fill(remaining, settings.initialNanos);
+    }
+
+    /** Starts the clock of {@code player} at time {@code now}. */
+    public void start(int player, long now) {
+        running = player;
+        runningSince = now;
+        turn++;
+    }
+
+    /**
+     * Stops the running clock, charging the time used and adding the
+     * increment for a completed move.
+     */
+    public void stop(long now, boolean moved) {
+        if (running < 0) {
+            return;
+        }
+        remaining[running] -= now - runningSince;
+        if (moved && remaining[running] > 0) {
+            remaining[running] += settings.incrementNanos;
+        }
+        running = -1;
+        turn++;
+    }
+
+    /**
+     * Charges overtime periods the running player has entered since the last
+     * call.
+     *
+     * @return penalty points for those periods
+     */
+    public int chargeOvertime(long now) {
+        if (running < 0) {
+            return 0;
+        }
+        int started = Math.min(periodsStarted(running, now), settings.overtimePeriods);
+        int fresh = Math.max(0, started - periodsCharged[running]);
+        periodsCharged[running] += fresh;
+        return fresh * settings.overtimePenalty;
+    }
+
+    /** @return true when the running player has used up all their overtime. */
+    public boolean isFlagged(long now) {
+        return running >= 0 && -remainingAt(running, now) >= settings.overtimeLimitNanos();
+    }
+
+    /**
+     * @return nanoseconds until the running player starts an overtime period
+     *         or flags, 0 when their flag has already fallen, or -1 when stopped
+     */
+    public long nanosUntilNextEvent(long now) {
+        if (running < 0) {
+            return -1;
+        }
+        long left = remainingAt(running, now);
+        if (left > 0) {
+            return left;
+        }
+        long over = -left;
+        if (settings.overtimePeriodNanos <= 0 || over >= settings.overtimeLimitNanos()) {
+            return 0;
+        }
+        long nextBoundary = (over / settings.overtimePeriodNanos + 1) * settings.overtimePeriodNanos;
+        return Math.min(nextBoundary, settings.overtimeLimitNanos()) - over;
+    }
+
+    /** @return time left for {@code player} at {@code now}; negative in overtime. */
+    public long remainingAt(int player, long now) {
+        return player == running ? remaining[player] - (now - runningSince) : remaining[player];
+    }
+
+    /** @return the player whose clock runs, or -1 when stopped. */
+    public int runningPlayer() {
+        return running;
+    }
+
+    /** @return a counter that changes whenever the clock starts or stops, so stale timers can be ignored. */
+    public long turn() {
+        return turn;
+    }
+
+    private int periodsStarted(int player, long now) {
+        long left = remainingAt(player, now);
+        if (left > 0) {
+            return 0;
+        }
+        if (settings.overtimePeriodNanos <= 0) {
+            return settings.overtimePeriods;
+        }
+        return (int) Math.min(Integer.MAX_VALUE, -left / settings.overtimePeriodNanos + 1);
+    }
+
+    /** Time control for every player of a game. */
+    public static final class Settings {
+        private final long initialNanos;
+        private final long incrementNanos;
+        private final long overtimePeriodNanos;
+        private final int overtimePenalty;
+        private final int overtimePeriods;
+
+        private Settings(long initialNanos, long incrementNanos, long overtimePeriodNanos,
+                         int overtimePenalty, int overtimePeriods) {
+            this.initialNanos = initialNanos;
+            this.incrementNanos = incrementNanos;
+            this.overtimePeriodNanos = overtimePeriodNanos;
+            this.overtimePenalty = overtimePenalty;
+            this.overtimePeriods = overtimePeriods;
+        }
+
+        /**
+         * @param initial starting bank per player
+         * @param increment added after each move made in time
+         * @param overtimePeriod length of one overtime period; zero for none
+         * @param overtimePenalty points lost for each overtime period started
+         * @param overtimePeriods periods allowed before the flag falls
+         */
+        public static Settings of(Duration initial, Duration increment, Duration overtimePeriod,
+                                  int overtimePenalty, int overtimePeriods) {
+            if (initial.isNegative() || increment.isNegative() || overtimePeriod.isNegative()
+                    || overtimePenalty < 0 || overtimePeriods < 0) {
+                throw new IllegalArgumentException("Clock settings must not be negative.");
+            }
+            return new Settings(initial.toNanos(), increment.toNanos(), overtimePeriod.toNanos(),
+                    overtimePenalty, overtimePeriod.isZero() ? 0 : overtimePeriods);
+        }
+
+        public int overtimePenalty() {
+            return overtimePenalty;
+        }
+
+        private long overtimeLimitNanos() {
+            return overtimePeriodNanos * overtimePeriods;
+        }
+    }
+}
@@ -5,6 +5,7 @@ import java.nio.file.Paths;
 import java.util.Arrays;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 public class GameFeaturesTest {
@@ -31,19 +32,19 @@ public class GameFeaturesTest {
                 Scrabble_Model.Letter.A,
                 Scrabble_Model.Letter.B));
 
-        Scrabble_Model.Placement placement = new Scrabble_Model.Placement(0, 0, Scrabble_Model.Placement.Direction.ACROSS, "HELLO");
+        Scrabble_Model.Placement placement = new Scrabble_Model.Placement(7, 7, Scrabble_Model.Placement.Direction.ACROSS, "HELLO");
         Scrabble_Model.MoveResult result = model.playWord(placement);
         assertTrue(result.isSuccess());
-        assertEquals('H', model.board.getCell(0, 0));
+        assertEquals('H', model.board.getCell(7, 7));
         assertTrue(model.canUndo());
 
         assertTrue(model.undo());
-        assertEquals(Scrabble_Model.Board.EMPTY, model.board.getCell(0, 0));
+        assertEquals(Scrabble_Model.Board.EMPTY, model.board.getCell(7, 7));
         assertEquals(0, model.getCurrentPlayer().getScore());
         assertTrue(model.canRedo());
 
         assertTrue(model.redo());
-        assertEquals('H', model.board.getCell(0, 0));
+        assertEquals('H', model.board.getCell(7, 7));
     }
 
     @Test
@@ -58,7 +59,7 @@ public class GameFeaturesTest {
                 Scrabble_Model.Letter.O,
                 Scrabble_Model.Letter.A,
                 Scrabble_Model.Letter.B));
-        Scrabble_Model.Placement placement = new Scrabble_Model.Placement(1, 1, Scrabble_Model.Placement.Direction.DOWN, "HELLO");
+        Scrabble_Model.Placement placement = new Scrabble_Model.Placement(3, 7, Scrabble_Model.Placement.Direction.DOWN, "HELLO");
         Scrabble_Model.MoveResult result = model.playWord(placement);
         assertTrue(result.isSuccess());
 
@@ -70,9 +71,396 @@ public class GameFeaturesTest {
         player.clearHand();
 
         model.loadGame(saveFile);
-        assertEquals('H', model.board.getCell(1, 1));
+        assertEquals('H', model.board.getCell(3, 7));
         assertTrue(model.getCurrentPlayer().getScore() > 0);
         saveFile.delete();
     }
-}
 
+    @Test
+    public void testSavesCarryTheirLayout() throws Exception {
+        BoardConfigLoader.BoardLayout rings = BoardConfigLoader.loadLibrary(Paths.get("boards")).require("Rings");
+        Scrabble_Model.Dictionary dictionary = new Scrabble_Model.Dictionary(Arrays.asList("HELLO"));
+        Scrabble_Model model = new Scrabble_Model(rings, dictionary, 5L);
+        model.setupPlayers(2);
+        File saveFile = File.createTempFile("scrabble", ".sav");
+        model.saveGame(saveFile);
+        // Simulate a JVM that never compiled this layout: its id is no longer registered.
+        String id = model.getLayout().getId();
+        java.nio.file.Files.write(saveFile.toPath(), renameLayout(java.nio.file.Files.readAllBytes(saveFile.toPath()), id));
+        Scrabble_Model loaded = new Scrabble_Model(
+                BoardConfigLoader.loadLibrary(Paths.get("boards")).require("Classic"), dictionary, 7L);
+        loaded.loadGame(saveFile);
+        saveFile.delete();
+        assertTrue(model.getLayout() == loaded.getLayout());
+
+        Game game = new Game(Arrays.asList("Ann", "Bob"), new Dictionary("words.txt"), 5L, rings.compiled());
+        java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+        game.writeSnapshot(new java.io.DataOutputStream(bytes));
+        Game restored = Game.readSnapshot(new java.io.DataInputStream(
+                new java.io.ByteArrayInputStream(renameLayout(bytes.toByteArray(), id))), new Dictionary("words.txt"));
+        assertTrue(game.getLayout() == restored.getLayout());
+    }
+
+    /** Swaps the ':' of a layout id in serialized bytes for ';', so the id no longer resolves. */
+    private static byte[] renameLayout(byte[] data, String id) {
+        byte[] needle = id.getBytes(java.nio.charset.StandardCharsets.UTF_8);
+        int replaced = 0;
+        for (int i = 0; i + needle.length <= data.length; i++) {
+            if (Arrays.equals(Arrays.copyOfRange(data, i, i + needle.length), needle)) {
+                data[i + id.indexOf(':')] = ';';
+                replaced++;
+            }
+        }
+        assertTrue(replaced > 0);
+        return data;
+    }
+
+    @Test
+    public void testSeededModelsReplayIdentically() throws Exception {
+        BoardConfigLoader.BoardLayout layout = BoardConfigLoader.loadLibrary(Paths.get("boards")).require("Classic");
+        Scrabble_Model.Dictionary dictionary = new Scrabble_Model.Dictionary(Arrays.asList("HELLO"));
+        Scrabble_Model first = new Scrabble_Model(layout, dictionary, 42L);
+        Scrabble_Model second = new Scrabble_Model(layout, dictionary, 42L);
+        first.setupPlayers(2);
+        second.setupPlayers(2);
+        for (int i = 0; i < 2; i++) {
+            assertEquals(first.players.get(i).snapshotRack(), second.players.get(i).snapshotRack());
+        }
+        assertEquals(first.tileBag.snapshotLetters(), second.tileBag.snapshotLetters());
+
+        File saveFile = File.createTempFile("scrabble", ".sav");
+        first.saveGame(saveFile);
+        BoardConfigLoader.BoardLayout rings = BoardConfigLoader.loadLibrary(Paths.get("boards")).require("Rings");
+        Scrabble_Model loaded = new Scrabble_Model(rings, dictionary, 7L);
+        loaded.loadGame(saveFile);
+        assertEquals(42L, loaded.getSeed());
+        assertTrue(first.getLayout() == second.getLayout());
+        assertTrue(first.getLayout() == loaded.getLayout());
+        assertEquals("Classic", loaded.getBoardName());
+        saveFile.delete();
+
+        GameRandom root = new GameRandom(42L);
+        GameRandom branch = root.split();
+        assertFalse(root.nextLong() == branch.nextLong());
+    }
+
+    @Test
+    public void testBatchEvaluationMatchesPlayAndLeavesModelUntouched() throws Exception {
+        Scrabble_Model model = buildModel();
+        Scrabble_Model.Player player = model.getCurrentPlayer();
+        player.setRack(Arrays.asList(
+                Scrabble_Model.Letter.H,
+                Scrabble_Model.Letter.E,
+                Scrabble_Model.Letter.L,
+                Scrabble_Model.Letter.L,
+                Scrabble_Model.Letter.O,
+                Scrabble_Model.Letter.A,
+                Scrabble_Model.Letter.B));
+
+        MoveBatch batch = model.evaluatePlacements(Arrays.asList(
+                new Scrabble_Model.Placement(7, 3, Scrabble_Model.Placement.Direction.ACROSS, "HELLO"),
+                new Scrabble_Model.Placement(3, 7, Scrabble_Model.Placement.Direction.DOWN, "HELLO"),
+                new Scrabble_Model.Placement(7, 7, Scrabble_Model.Placement.Direction.ACROSS, "WORLD"),
+                new Scrabble_Model.Placement(7, 12, Scrabble_Model.Placement.Direction.ACROSS, "HELLO"),
+                new Scrabble_Model.Placement(7, 7, Scrabble_Model.Placement.Direction.ACROSS, "HOLE"),
+                new Scrabble_Model.Placement(0, 0, Scrabble_Model.Placement.Direction.ACROSS, "HELLO")),
+                player.getRack());
+
+        assertEquals(6, batch.size());
+        assertTrue(batch.isValid(0));
+        assertTrue(batch.isValid(1));
+        assertEquals(RulesKernel.MISSING_TILES, batch.status(2));
+        assertEquals(RulesKernel.OUT_OF_BOUNDS, batch.status(3));
+        assertEquals(RulesKernel.NOT_A_WORD, batch.status(4));
+        assertEquals(RulesKernel.MISSES_CENTRE, batch.status(5));
+        assertEquals(7, player.handSize());
+        assertEquals(Scrabble_Model.Board.EMPTY, model.board.getCell(7, 7));
+        assertFalse(model.canUndo());
+
+        int best = batch.best();
+        Scrabble_Model.Placement chosen = best == 0
+                ? new Scrabble_Model.Placement(7, 3, Scrabble_Model.Placement.Direction.ACROSS, "HELLO")
+                : new Scrabble_Model.Placement(3, 7, Scrabble_Model.Placement.Direction.DOWN, "HELLO");
+        assertEquals(batch.score(best), model.playWord(chosen).getPoints());
+    }
+
+    @Test
+    public void testLargeBoardTakesSizeFromLayout() throws Exception {
+        BoardConfigLoader.BoardLibrary library = BoardConfigLoader.loadLibrary(Paths.get("boards"));
+        Scrabble_Model.Dictionary dictionary = new Scrabble_Model.Dictionary(Arrays.asList("HELLO"));
+        Scrabble_Model model = new Scrabble_Model(library.require("Grand"), dictionary, 5L);
+        model.setupPlayers(2);
+        assertEquals(21, model.board.size());
+        assertEquals(22, model.board.render().split("\n").length);
+
+        model.getCurrentPlayer().setRack(Arrays.asList(
+                Scrabble_Model.Letter.H,
+                Scrabble_Model.Letter.E,
+                Scrabble_Model.Letter.L,
+                Scrabble_Model.Letter.L,
+                Scrabble_Model.Letter.O));
+        assertTrue(model.playWord(new Scrabble_Model.Placement(10, 8, Scrabble_Model.Placement.Direction.ACROSS, "HELLO")).isSuccess());
+        assertEquals('O', model.board.getCell(10, 12));
+
+        File saveFile = File.createTempFile("scrabble", ".sav");
+        model.saveGame(saveFile);
+        Scrabble_Model loaded = new Scrabble_Model(library.require("Classic"), dictionary, 5L);
+        loaded.loadGame(saveFile);
+        saveFile.delete();
+        assertEquals(21, loaded.board.size());
+        assertEquals('H', loaded.board.getCell(10, 8));
+        assertEquals("Grand", loaded.getBoardName());
+    }
+
+    @Test
+    public void testPlacementMustConnectAndCoverCentre() throws Exception {
+        Scrabble_Model model = buildModel();
+        model.getCurrentPlayer().setRack(Arrays.asList(
+                Scrabble_Model.Letter.H,
+                Scrabble_Model.Letter.E,
+                Scrabble_Model.Letter.L,
+                Scrabble_Model.Letter.L,
+                Scrabble_Model.Letter.O,
+                Scrabble_Model.Letter.BLANK,
+                Scrabble_Model.Letter.BLANK));
+        Scrabble_Model.MoveResult offCentre = model.playWord(
+                new Scrabble_Model.Placement(0, 0, Scrabble_Model.Placement.Direction.ACROSS, "HELLO"));
+        assertFalse(offCentre.isSuccess());
+        assertEquals(RulesKernel.describe(RulesKernel.MISSES_CENTRE), offCentre.getMessage());
+        assertTrue(model.playWord(new Scrabble_Model.Placement(7, 7, Scrabble_Model.Placement.Direction.ACROSS, "HELLO")).isSuccess());
+
+        Scrabble_Model.Player next = model.getCurrentPlayer();
+        next.setRack(Arrays.asList(
+                Scrabble_Model.Letter.W,
+                Scrabble_Model.Letter.O,
+                Scrabble_Model.Letter.R,
+                Scrabble_Model.Letter.L,
+                Scrabble_Model.Letter.D,
+                Scrabble_Model.Letter.H,
+                Scrabble_Model.Letter.E));
+        MoveBatch batch = model.evaluatePlacements(Arrays.asList(
+                new Scrabble_Model.Placement(0, 0, Scrabble_Model.Placement.Direction.ACROSS, "WORLD"),
+                new Scrabble_Model.Placement(7, 7, Scrabble_Model.Placement.Direction.ACROSS, "HELLO"),
+                new Scrabble_Model.Placement(7, 2, Scrabble_Model.Placement.Direction.ACROSS, "WORLD"),
+                new Scrabble_Model.Placement(7, 11, Scrabble_Model.Placement.Direction.DOWN, "OWL"),
+                new Scrabble_Model.Placement(8, 3, Scrabble_Model.Placement.Direction.ACROSS, "WORLD"),
+                new Scrabble_Model.Placement(6, 11, Scrabble_Model.Placement.Direction.DOWN, "WORLD")),
+                next.getRack());
+        assertEquals(RulesKernel.NOT_CONNECTED, batch.status(0));
+        assertEquals(RulesKernel.NO_NEW_TILES, batch.status(1));
+        assertEquals(RulesKernel.RUN_CONTINUES, batch.status(2));
+        assertEquals(RulesKernel.NOT_A_WORD, batch.status(3));
+        assertTrue(batch.isValid(4));
+        assertTrue(batch.isValid(5));
+    }
+
+    @Test
+    public void testUnseenTilesFollowPlaysAndUndo() throws Exception {
+        Scrabble_Model model = new Scrabble_Model(
+                BoardConfigLoader.loadLibrary(Paths.get("boards")).require("Classic"),
+                new Scrabble_Model.Dictionary(Arrays.asList("HEW")), 5L);
+        model.setupPlayers(2);
+        UnseenTiles unseen = model.getUnseenTiles();
+        assertEquals(40, unseen.offBoardTotal());
+
+        Scrabble_Model.Player player = model.getCurrentPlayer();
+        player.setRack(Arrays.asList(
+                Scrabble_Model.Letter.H,
+                Scrabble_Model.Letter.E,
+                Scrabble_Model.Letter.BLANK,
+                Scrabble_Model.Letter.B,
+                Scrabble_Model.Letter.C,
+                Scrabble_Model.Letter.E,
+                Scrabble_Model.Letter.G));
+        assertTrue(model.playWord(new Scrabble_Model.Placement(7, 7, Scrabble_Model.Placement.Direction.ACROSS, "HEW")).isSuccess());
+        int[] counts = unseen.snapshot();
+        assertEquals(37, unseen.offBoardTotal());
+        assertEquals(1, counts[Scrabble_Model.Letter.H.ordinal()]);
+        assertEquals(11, counts[Scrabble_Model.Letter.E.ordinal()]);
+        assertEquals(1, counts[Scrabble_Model.Letter.BLANK.ordinal()]);
+
+        Rack rack = player.getRack();
+        int[] hidden = new int[counts.length];
+        assertEquals(37 - rack.size(), unseen.unseenBy(rack, hidden));
+
+        Rack sample = new Rack();
+        unseen.sampleRack(rack, 7, new GameRandom(9L), null, sample);
+        assertEquals(7, sample.size());
+        for (int i = 0; i < hidden.length; i++) {
+            assertTrue(sample.count(i) <= hidden[i]);
+        }
+        double[] onlyE = new double[counts.length];
+        onlyE[Scrabble_Model.Letter.E.ordinal()] = 1.0;
+        unseen.sampleRack(rack, 7, new GameRandom(9L), onlyE, sample);
+        assertEquals(7, sample.count(Scrabble_Model.Letter.E.ordinal()));
+
+        assertTrue(model.undo());
+        assertEquals(40, unseen.offBoardTotal());
+        assertTrue(model.redo());
+        assertEquals(37, unseen.offBoardTotal());
+    }
+
+    @Test
+    public void testPositionBranchesWithoutChangingParent() throws Exception {
+        Scrabble_Model model = buildModel();
+        model.getCurrentPlayer().setRack(Arrays.asList(
+                Scrabble_Model.Letter.H,
+                Scrabble_Model.Letter.E,
+                Scrabble_Model.Letter.L,
+                Scrabble_Model.Letter.L,
+                Scrabble_Model.Letter.O,
+                Scrabble_Model.Letter.A,
+                Scrabble_Model.Letter.B));
+        GamePosition root = model.toPosition();
+        Scrabble_Model.Placement across = new Scrabble_Model.Placement(7, 7, Scrabble_Model.Placement.Direction.ACROSS, "HELLO");
+        GamePosition first = root.play(across);
+        GamePosition second = root.play(new Scrabble_Model.Placement(5, 7, Scrabble_Model.Placement.Direction.DOWN, "HELLO"));
+
+        assertEquals('\0', root.letterAt(7, 7));
+        assertEquals(0, root.tilesOnBoard());
+        assertEquals('H', first.letterAt(7, 7));
+        assertEquals('\0', first.letterAt(5, 7));
+        assertEquals('H', second.letterAt(5, 7));
+        assertEquals(5, second.tilesOnBoard());
+        assertEquals(1, first.currentPlayer());
+        assertEquals(RulesKernel.NOT_CONNECTED, first.pass().check(0, 0, true, "AB"));
+
+        Scrabble_Model.MoveResult live = model.playWord(across);
+        assertEquals(live.getPoints(), first.score(0));
+        assertEquals(model.getPlayers().get(0).getRack().signature(), first.rack(0).signature());
+        assertEquals(model.tileBag.size(), first.bagSize());
+    }
+
+    @Test
+    public void testSnapshotIsPublishedAfterEachChange() throws Exception {
+        Scrabble_Model model = buildModel();
+        model.getCurrentPlayer().setRack(Arrays.asList(
+                Scrabble_Model.Letter.H,
+                Scrabble_Model.Letter.E,
+                Scrabble_Model.Letter.L,
+                Scrabble_Model.Letter.L,
+                Scrabble_Model.Letter.O));
+        model.publish();
+        GamePosition before = model.snapshot();
+        assertEquals(0, before.tilesOnBoard());
+
+        java.util.concurrent.atomic.AtomicReference<GamePosition> seen = new java.util.concurrent.atomic.AtomicReference<>();
+        assertTrue(model.playWord(new Scrabble_Model.Placement(7, 7, Scrabble_Model.Placement.Direction.ACROSS, "HELLO")).isSuccess());
+        Thread reader = new Thread(() -> seen.set(model.snapshot()));
+        reader.start();
+        reader.join();
+        GamePosition after = seen.get();
+        assertTrue(after.version() > before.version());
+        assertEquals(5, after.tilesOnBoard());
+        assertEquals('O', after.letterAt(7, 11));
+        assertEquals(1, after.currentPlayer());
+        assertEquals(0, before.tilesOnBoard());
+
+        assertTrue(model.undo());
+        assertEquals(0, model.snapshot().tilesOnBoard());
+        assertTrue(model.snapshot().version() > after.version());
+    }
+
+    @Test
+    public void testPublishedMovesMatchAFullCopy() throws Exception {
+        Scrabble_Model model = buildModel();
+        model.getCurrentPlayer().setRack(Arrays.asList(
+                Scrabble_Model.Letter.H, Scrabble_Model.Letter.E, Scrabble_Model.Letter.L,
+                Scrabble_Model.Letter.L, Scrabble_Model.Letter.O, Scrabble_Model.Letter.BLANK));
+        model.publish();
+        GamePosition before = model.snapshot();
+        assertTrue(model.playWord(new Scrabble_Model.Placement(7, 7, Scrabble_Model.Placement.Direction.ACROSS, "HELLO")).isSuccess());
+        model.getCurrentPlayer().setRack(Arrays.asList(
+                Scrabble_Model.Letter.W, Scrabble_Model.Letter.R, Scrabble_Model.Letter.L, Scrabble_Model.Letter.D));
+        model.publish();
+        assertTrue(model.playWord(new Scrabble_Model.Placement(6, 11, Scrabble_Model.Placement.Direction.DOWN, "WORLD")).isSuccess());
+
+        GamePosition published = model.snapshot();
+        GamePosition full = model.toPosition();
+        assertEquals(full.version(), published.version());
+        assertEquals(full.tilesOnBoard(), published.tilesOnBoard());
+        assertEquals(full.currentPlayer(), published.currentPlayer());
+        assertEquals(full.bagSize(), published.bagSize());
+        for (int r = 0; r < full.size(); r++) {
+            for (int c = 0; c < full.size(); c++) {
+                assertEquals(full.letterAt(r, c), published.letterAt(r, c));
+                assertEquals(full.isBlankAt(r, c), published.isBlankAt(r, c));
+            }
+        }
+        for (int p = 0; p < full.playerCount(); p++) {
+            assertEquals(full.score(p), published.score(p));
+            assertEquals(full.rack(p).signature(), published.rack(p).signature());
+        }
+        assertEquals(full.check(9, 7, true, "OH"), published.check(9, 7, true, "OH"));
+        assertEquals(0, before.tilesOnBoard());
+    }
+
+    @Test
+    public void testPositionWithoutPlayersRefusesMoves() throws Exception {
+        Scrabble_Model model = new Scrabble_Model(
+                BoardConfigLoader.loadLibrary(Paths.get("boards")).require("Classic"),
+                new Scrabble_Model.Dictionary(Arrays.asList("HELLO")), 3L);
+        GamePosition empty = model.snapshot();
+        assertEquals(0, empty.playerCount());
+        int refused = 0;
+        try {
+            empty.pass();
+        } catch (IllegalStateException expected) {
+            refused++;
+        }
+        try {
+            empty.play(7, 7, true, "HELLO");
+        } catch (IllegalStateException expected) {
+            refused++;
+        }
+        try {
+            empty.check(7, 7, true, "HELLO");
+        } catch (IllegalStateException expected) {
+            refused++;
+        }
+        assertEquals(3, refused);
+    }
+
+    @Test
+    public void testToPositionDoesNotBumpTheVersion() throws Exception {
+        Scrabble_Model model = buildModel();
+        long published = model.snapshot().version();
+        assertEquals(published, model.toPosition().version());
+        assertEquals(published, model.toPosition().version());
+        assertEquals(published, model.snapshot().version());
+    }
+
+    @Test
+    public void testExposureUpdatesMatchFullRebuild() throws Exception {
+        Scrabble_Model model = buildModel();
+        model.getCurrentPlayer().setRack(Arrays.asList(
+                Scrabble_Model.Letter.H,
+                Scrabble_Model.Letter.E,
+                Scrabble_Model.Letter.L,
+                Scrabble_Model.Letter.L,
+                Scrabble_Model.Letter.O));
+        assertTrue(model.playWord(new Scrabble_Model.Placement(7, 7, Scrabble_Model.Placement.Direction.ACROSS, "HELLO")).isSuccess());
+        model.getCurrentPlayer().setRack(Arrays.asList(
+                Scrabble_Model.Letter.W,
+                Scrabble_Model.Letter.R,
+                Scrabble_Model.Letter.L,
+                Scrabble_Model.Letter.D));
+        assertTrue(model.playWord(new Scrabble_Model.Placement(6, 11, Scrabble_Model.Placement.Direction.DOWN, "WORLD")).isSuccess());
+
+        ExposureMap live = model.getExposure();
+        ExposureMap fresh = new ExposureMap(model.getLayout());
+        fresh.rebuild(model.board.snapshot());
+        int size = model.board.size();
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                assertEquals(fresh.exposure(r, c), live.exposure(r, c));
+            }
+        }
+        assertEquals(0, live.exposure(7, 7));
+        assertEquals(0, live.exposure(0, 0));
+        assertTrue(live.exposure(7, 6) > 0);
+
+        assertTrue(model.undo());
+        assertEquals(0, model.getExposure().exposure(5, 11));
+    }
+}
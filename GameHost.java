@@ -0,0 +1,669 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Headless engine that hosts many {@link Game} instances in one JVM.
+ *
+ * Every hosted game is a {@link GameActor} in a sharded {@link GameRegistry}.
+ * Commands for the same game run one at a time in submission order, while
+ * different games drain their queues independently on virtual threads. An idle
+ * game holds no thread at all, only its queue and model, so tens of thousands
+ * of waiting games stay cheap.
+ *
+ * With passivation enabled, a game left idle for the configured time is written
+ * to a small file and its model dropped from the heap; the next command for it
+ * reloads the file first. Heap use then follows the number of active games.
+ *
+ * Observers follow a game through {@link #watch}. A game builds its
+ * {@link SpectatorFeed} on the first watch, polls read the feed without going
+ * through the game's queue, and the feed is dropped once every spectator has
+ * closed. Unwatched games publish nothing, and a watched game is never
+ * passivated.
+ *
+ * Games created with {@link GameClock.Settings} run a {@link GameClock}.
+ * Every clock in the host shares one {@link TimerWheel} thread. A clock
+ * event only queues a command on its game's actor, which charges overtime
+ * or passes the turn when the player's flag falls. A game whose clock is
+ * running is never passivated, since its next clock event would read it
+ * straight back.
+ *
+ * A host built with a {@link MoveLog} records each new game as a
+ * {@code GAME <seed> <names...>} line and each accepted move or pass in
+ * {@link Game#playTurn} notation. The log is written from the game's actor,
+ * so a game's records keep their order. The future of a move completes only
+ * once its record is durable. The actor does not wait for the write and goes
+ * on with the next command.
+ */
+public final class GameHost implements AutoCloseable {
+    private final Dictionary dictionary;
+    private final ExecutorService executor;
+    private final GameRegistry<HostedGame> games;
+    private final Path passivationDirectory;
+    private final long idleNanos;
+    private final ScheduledExecutorService sweeper;
+    private final AtomicInteger passivated = new AtomicInteger();
+    private final MoveLog moveLog;
+    private volatile TimerWheel clockWheel;
+    private volatile boolean closed;
+
+    /**
+     * Creates a host whose games all validate against the given dictionary.
+     */
+    public GameHost(Dictionary dictionary) {
+        this(dictionary, Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    /**
+     * Creates a host that drains game queues on a caller-supplied executor.
+     * The host shuts the executor down when it is closed.
+     */
+    public GameHost(Dictionary dictionary, ExecutorService executor) {
+        this(dictionary, executor, null, null, null);
+    }
+
+    /**
+     * Creates a host that records games and moves in {@code moveLog}. The
+     * caller owns the log and closes it after the host.
+     */
+    public GameHost(Dictionary dictionary, MoveLog moveLog) {
+        this(dictionary, Executors.newVirtualThreadPerTaskExecutor(), null, null,
+                Objects.requireNonNull(moveLog, "moveLog"));
+    }
+
+    /**
+     * Creates a host that passivates games idle for longer than {@code idleTimeout}
+     * into {@code passivationDirectory}.
+     */
+    public GameHost(Dictionary dictionary, Path passivationDirectory, Duration idleTimeout) throws IOException {
+        this(dictionary, Executors.newVirtualThreadPerTaskExecutor(),
+                Objects.requireNonNull(passivationDirectory, "passivationDirectory"),
+                Objects.requireNonNull(idleTimeout, "idleTimeout"), null);
+        Files.createDirectories(passivationDirectory);
+    }
+
+    private GameHost(Dictionary dictionary, ExecutorService executor, Path passivationDirectory, Duration idleTimeout,
+                     MoveLog moveLog) {
+        this.dictionary = Objects.requireNonNull(dictionary, "dictionary");
+        this.moveLog = moveLog;
+        this.executor = Objects.requireNonNull(executor, "executor");
+        this.games = new GameRegistry<>(executor);
+        this.passivationDirectory = passivationDirectory;
+        if (passivationDirectory == null) {
+            this.idleNanos = Long.MAX_VALUE;
+            this.sweeper = null;
+        } else {
+            this.idleNanos = idleTimeout.toNanos();
+            this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "scrabble-passivation");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long period = Math.max(TimeUnit.MILLISECONDS.toNanos(10), idleNanos / 4);
+            sweeper.scheduleAtFixedRate(this::passivateIdle, period, period, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Starts a new game and returns its id.
+     *
+     * @param playerNames seating order, 2-4 names
+     * @return id used to address the game in later calls
+     */
+    public long createGame(List<String> playerNames) {
+        return createGame(playerNames, GameRandom.newSeed());
+    }
+
+    /**
+     * Starts a new game with a fixed tile-bag seed so it can be replayed exactly.
+     * Parallel runs can take independent seeds from {@link GameRandom#seedFor}.
+     *
+     * @return id used to address the game in later calls
+     */
+    public long createGame(List<String> playerNames, long seed) {
+        long id = games.register(new HostedGame(new Game(playerNames, dictionary, seed), null));
+        logCreated(id, playerNames, seed);
+        return id;
+    }
+
+    /**
+     * Starts a new game whose players are on the clock. The first player's
+     * clock starts straight away.
+     *
+     * @return id used to address the game in later calls
+     */
+    public long createGame(List<String> playerNames, long seed, GameClock.Settings clock) {
+        Game game = new Game(playerNames, dictionary, seed);
+        HostedGame hosted = new HostedGame(game, new GameClock(clock, playerNames.size()));
+        long id = games.register(hosted);
+        logCreated(id, playerNames, seed);
+        games.find(id).submit(owner -> {
+            owner.id = id;
+            owner.startClock(owner.activate(), System.nanoTime());
+            return null;
+        });
+        return id;
+    }
+
+    /**
+     * Queues a clock reading behind any moves already submitted for the game.
+     *
+     * @return future completed with each player's remaining time in
+     *         milliseconds, negative in overtime; empty for untimed games
+     */
+    public CompletableFuture<long[]> queryClock(long gameId) {
+        GameActor<HostedGame> actor = games.find(gameId);
+        if (actor == null) {
+            return unknownGame(gameId);
+        }
+        return actor.submit(hosted -> {
+            if (hosted.clock == null) {
+                return new long[0];
+            }
+            long now = System.nanoTime();
+            long[] millis = new long[hosted.activate().getPlayers().size()];
+            for (int i = 0; i < millis.length; i++) {
+                millis[i] = TimeUnit.NANOSECONDS.toMillis(hosted.clock.remainingAt(i, now));
+            }
+            return millis;
+        });
+    }
+
+    /**
+     * Queues a move for the current player in {@link Game#playTurn} notation,
+     * e.g. {@code "H8 HELLO A"}, or {@code "PASS"}.
+     *
+     * @return future completed with the outcome once the move has been
+     *         applied and, with a {@link MoveLog}, recorded durably
+     */
+    public CompletableFuture<Game.MoveResult> submitMove(long gameId, String notation) {
+        GameActor<HostedGame> actor = games.find(gameId);
+        if (actor == null) {
+            return unknownGame(gameId);
+        }
+        if (moveLog == null) {
+            return actor.submit(hosted -> hosted.move(notation));
+        }
+        return actor.submit(hosted -> {
+            Game.MoveResult result = hosted.move(notation);
+            if (!result.success()) {
+                return CompletableFuture.completedFuture(result);
+            }
+            return hosted.log(NotationTokenizer.isPass(notation) ? "PASS" : notation.trim()).thenApply(ignored -> result);
+        }).thenCompose(durable -> durable);
+    }
+
+    /**
+     * Subscribes an observer to a game. The first poll returns the full state
+     * and later polls return the moves made since, merged into one diff.
+     * Close the spectator when done so the game can stop publishing.
+     *
+     * @return future completed with the spectator once it is subscribed
+     */
+    public CompletableFuture<SpectatorFeed.Spectator> watch(long gameId) {
+        GameActor<HostedGame> actor = games.find(gameId);
+        if (actor == null) {
+            return unknownGame(gameId);
+        }
+        return actor.submit(HostedGame::watch);
+    }
+
+    /**
+     * Queues a state query behind any moves already submitted for the game.
+     *
+     * @return future completed with a consistent view of the game
+     */
+    public CompletableFuture<GameView> queryState(long gameId) {
+        return submit(gameId, GameView::new);
+    }
+
+    /**
+     * Removes a game from the host. Commands queued before the call still run;
+     * commands submitted afterwards fail with {@link IllegalArgumentException}.
+     *
+     * @return future completed with the final view of the game
+     */
+    public CompletableFuture<GameView> closeGame(long gameId) {
+        GameActor<HostedGame> actor = games.remove(gameId);
+        if (actor == null) {
+            return unknownGame(gameId);
+        }
+        return actor.submit(hosted -> {
+            GameView view = new GameView(hosted.activate());
+            hosted.cancelClock();
+            hosted.discardFile();
+            return view;
+        });
+    }
+
+    /** @return true when a game with this id is hosted, whether in memory or passivated. */
+    public boolean isHosted(long gameId) {
+        return games.find(gameId) != null;
+    }
+
+    /** @return number of games currently hosted, whether in memory or passivated. */
+    public int liveGames() {
+        return games.size();
+    }
+
+    /** @return number of hosted games currently held on disk rather than in memory. */
+    public int passivatedGames() {
+        return passivated.get();
+    }
+
+    /** @return clock events scheduled for hosted games that have neither fired nor been cancelled. */
+    public int pendingClockEvents() {
+        TimerWheel wheel = clockWheel;
+        return wheel == null ? 0 : wheel.pending();
+    }
+
+    /**
+     * Queues passivation for every game idle for at least the configured timeout.
+     * The background sweeper calls this periodically; it is public so callers can
+     * force a sweep. Does nothing when passivation is disabled.
+     */
+    public void passivateIdle() {
+        if (passivationDirectory == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        games.forEach((id, actor) -> {
+            if (actor.isIdle() && actor.peek().isEvictable(now, idleNanos)) {
+                actor.submit(hosted -> {
+                    if (hosted.isEvictable(System.nanoTime(), idleNanos)) {
+                        hosted.passivate(passivationDirectory.resolve("game-" + id + ".bin"));
+                    }
+                    return null;
+                });
+            }
+        });
+    }
+
+    /** Drops every hosted game, deletes passivation files and stops the executor. */
+    @Override
+    public void close() {
+        closed = true;
+        synchronized (this) {
+            if (clockWheel != null) {
+                clockWheel.close();
+            }
+        }
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+        if (passivationDirectory != null) {
+            List<CompletableFuture<Object>> discards = new ArrayList<>();
+            games.forEach((id, actor) -> discards.add(actor.submit(hosted -> {
+                hosted.discardFile();
+                return null;
+            })));
+            CompletableFuture.allOf(discards.toArray(new CompletableFuture<?>[0])).join();
+        }
+        games.clear();
+        executor.shutdown();
+    }
+
+    private <T> CompletableFuture<T> submit(long gameId, Function<Game, T> command) {
+        GameActor<HostedGame> actor = games.find(gameId);
+        if (actor == null) {
+            return unknownGame(gameId);
+        }
+        return actor.submit(hosted -> command.apply(hosted.activate()));
+    }
+
+    private void logCreated(long gameId, List<String> playerNames, long seed) {
+        if (moveLog != null) {
+            // Queued on the actor so the header precedes the game's first move.
+            games.find(gameId).submit(hosted -> {
+                hosted.id = gameId;
+                return hosted.log("GAME " + seed + " " + String.join(" ", playerNames));
+            });
+        }
+    }
+
+    private synchronized TimerWheel clockWheel() {
+        if (clockWheel == null) {
+            clockWheel = new TimerWheel(runnable -> {
+                Thread thread = new Thread(runnable, "scrabble-clocks");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return clockWheel;
+    }
+
+    private void queueClockEvent(long gameId, long turn) {
+        GameActor<HostedGame> actor = games.find(gameId);
+        if (actor != null) {
+            actor.submit(hosted -> {
+                hosted.onClockEvent(turn);
+                return null;
+            });
+        }
+    }
+
+    private static <T> CompletableFuture<T> unknownGame(long gameId) {
+        return CompletableFuture.failedFuture(new IllegalArgumentException("Unknown game: " + gameId));
+    }
+
+    private static Game.MoveResult applyMove(Game game, String notation) {
+        if (game.isGameOver()) {
+            return Game.MoveResult.failure("Game is over.");
+        }
+        if (NotationTokenizer.isPass(notation)) {
+            String name = game.getCurrentPlayer().getName();
+            game.passTurn();
+            return Game.MoveResult.success(0, name + " passes.");
+        }
+        return game.playTurn(notation);
+    }
+
+    /**
+     * Holder that lets a game move between the heap and disk. Only ever touched
+     * on its actor, apart from the volatile idle timestamp, clock event and
+     * feed read by the sweeper. The feed itself is safe to read from any thread.
+     */
+    private final class HostedGame {
+        private final GameClock clock;
+        private long id;
+        private volatile TimerWheel.Timeout clockEvent;
+        private Game game;
+        private Path file;
+        private volatile long lastUsed = System.nanoTime();
+        private volatile SpectatorFeed feed;
+
+        HostedGame(Game game, GameClock clock) {
+            this.game = game;
+            this.clock = clock;
+        }
+
+        SpectatorFeed.Spectator watch() {
+            if (feed == null) {
+                feed = new SpectatorFeed(new GameView(activate()));
+            }
+            return feed.subscribe();
+        }
+
+        /** Tells spectators about a change; drops the feed once nobody watches. */
+        private void publish(int[] placedSquares, Game active) {
+            SpectatorFeed current = feed;
+            if (current == null) {
+                return;
+            }
+            if (!current.hasWatchers()) {
+                feed = null;
+                return;
+            }
+            int size = active.getBoard().size();
+            char[] letters = new char[placedSquares.length];
+            for (int i = 0; i < placedSquares.length; i++) {
+                letters[i] = active.getBoard().getCell(placedSquares[i] / size, placedSquares[i] % size);
+            }
+            List<Player> players = active.getPlayers();
+            int[] scores = new int[players.size()];
+            for (int i = 0; i < scores.length; i++) {
+                scores[i] = players.get(i).getScore();
+            }
+            current.publish(placedSquares, letters, scores, active.tilesRemaining(),
+                    active.getCurrentPlayer().getName(), active.isGameOver());
+        }
+
+        Game.MoveResult move(String notation) {
+            Game active = activate();
+            long now = System.nanoTime();
+            if (clock != null && !active.isGameOver() && settleClock(active, now)) {
+                return Game.MoveResult.failure("Time expired; turn passed.");
+            }
+            Game.MoveResult result = applyMove(active, notation);
+            if (result.success()) {
+                publish(active.getLastPlacedSquares(), active);
+                if (clock != null) {
+                    clock.stop(now, true);
+                    startClock(active, now);
+                }
+            }
+            return result;
+        }
+
+        void startClock(Game active, long now) {
+            cancelClock();
+            if (active.isGameOver() || closed) {
+                return;
+            }
+            clock.start(active.getCurrentPlayerIndex(), now);
+            armClock(now);
+        }
+
+        void cancelClock() {
+            if (clockEvent != null) {
+                clockEvent.cancel();
+                clockEvent = null;
+            }
+        }
+
+        void onClockEvent(long turn) {
+            if (clock.turn() != turn) {
+                return;
+            }
+            Game active = activate();
+            long now = System.nanoTime();
+            if (!active.isGameOver() && !settleClock(active, now)) {
+                armClock(now);
+            }
+        }
+
+        /**
+         * Charges any overtime the player to move has entered and passes
+         * their turn once their flag has fallen.
+         *
+         * @return true when the turn was passed
+         */
+        private boolean settleClock(Game active, long now) {
+            int penalty = clock.chargeOvertime(now);
+            if (penalty > 0) {
+                active.getCurrentPlayer().addPoints(-penalty);
+            }
+            if (!clock.isFlagged(now)) {
+                if (penalty > 0) {
+                    publish(new int[0], active);
+                }
+                return false;
+            }
+            clock.stop(now, false);
+            active.passTurn();
+            log("PASS");
+            publish(active.getLastPlacedSquares(), active);
+            startClock(active, now);
+            return true;
+        }
+
+        private void armClock(long now) {
+            long wait = clock.nanosUntilNextEvent(now);
+            if (wait < 0 || closed) {
+                return;
+            }
+            long turn = clock.turn();
+            long gameId = id;
+            clockEvent = clockWheel().schedule(() -> queueClockEvent(gameId, turn), wait, TimeUnit.NANOSECONDS);
+        }
+
+        /** Appends a record for this game; completed at once when the host keeps no log. */
+        CompletableFuture<Void> log(String entry) {
+            if (moveLog == null) {
+                return CompletableFuture.completedFuture(null);
+            }
+            return moveLog.append(id, entry);
+        }
+
+        Game activate() {
+            lastUsed = System.nanoTime();
+            if (game == null) {
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                    game = Game.readSnapshot(in, dictionary);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException("Failed to reactivate game from " + file, ex);
+                }
+                passivated.decrementAndGet();
+            }
+            return game;
+        }
+
+        /** @return true when the game is idle, unwatched and not waiting on a clock event. */
+        boolean isEvictable(long now, long idleNanos) {
+            SpectatorFeed current = feed;
+            TimerWheel.Timeout event = clockEvent;
+            return game != null && now - lastUsed >= idleNanos && (current == null || !current.hasWatchers())
+                    && (event == null || event.isExpired());
+        }
+
+        void passivate(Path target) {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(target)))) {
+                game.writeSnapshot(out);
+            } catch (IOException ex) {
+                // Keep the game in memory; the next sweep will try again.
+                return;
+            }
+            file = target;
+            game = null;
+            feed = null;
+            passivated.incrementAndGet();
+        }
+
+        void discardFile() {
+            if (file == null) {
+                return;
+            }
+            if (game == null) {
+                passivated.decrementAndGet();
+            }
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ignored) {
+            }
+            file = null;
+        }
+    }
+
+    /**
+     * Immutable snapshot of a hosted game taken on the game's own queue.
+     */
+    public static final class GameView {
+        private final String board;
+        private final List<String> rows;
+        private final List<String> playerNames;
+        private final List<Integer> scores;
+        private final String currentPlayer;
+        private final int tilesRemaining;
+        private final boolean gameOver;
+        private final long seed;
+
+        private GameView(Game game) {
+            Board grid = game.getBoard();
+            this.board = grid.render();
+            int size = grid.size();
+            List<String> lines = new ArrayList<>(size);
+            for (int r = 0; r < size; r++) {
+                char[] row = new char[size];
+                for (int c = 0; c < size; c++) {
+                    char value = grid.getCell(r, c);
+                    row[c] = value == '\0' ? '.' : value;
+                }
+                lines.add(new String(row));
+            }
+            this.rows = Collections.unmodifiableList(lines);
+            List<String> names = new ArrayList<>();
+            List<Integer> points = new ArrayList<>();
+            for (Player player : game.getPlayers()) {
+                names.add(player.getName());
+                points.add(player.getScore());
+            }
+            this.playerNames = Collections.unmodifiableList(names);
+            this.scores = Collections.unmodifiableList(points);
+            this.currentPlayer = game.getCurrentPlayer().getName();
+            this.tilesRemaining = game.tilesRemaining();
+            this.gameOver = game.isGameOver();
+            this.seed = game.getSeed();
+        }
+
+        /** The view {@code base} becomes once {@code diff} is applied; used by spectators to resync. */
+        GameView(GameView base, SpectatorFeed.Diff diff) {
+            int size = base.rows.size();
+            char[][] grid = new char[size][];
+            for (int r = 0; r < size; r++) {
+                grid[r] = base.rows.get(r).replace('.', '\0').toCharArray();
+            }
+            for (int i = 0; i < diff.changedCells(); i++) {
+                grid[diff.rowAt(i)][diff.colAt(i)] = diff.letterAt(i);
+            }
+            Board board = new Board(size);
+            board.restore(grid);
+            this.board = board.render();
+            List<String> lines = new ArrayList<>(size);
+            for (char[] row : grid) {
+                lines.add(new String(row).replace('\0', '.'));
+            }
+            this.rows = Collections.unmodifiableList(lines);
+            this.playerNames = base.playerNames;
+            List<Integer> points = new ArrayList<>(base.scores.size());
+            for (int i = 0; i < base.scores.size(); i++) {
+                points.add(base.scores.get(i) + diff.scoreDelta(i));
+            }
+            this.scores = Collections.unmodifiableList(points);
+            this.currentPlayer = diff.currentPlayer();
+            this.tilesRemaining = diff.tilesRemaining();
+            this.gameOver = diff.gameOver();
+            this.seed = base.seed;
+        }
+
+        public String board() {
+            return board;
+        }
+
+        /** @return one string per board row, with '.' marking empty squares. */
+        public List<String> rows() {
+            return rows;
+        }
+
+        public List<String> playerNames() {
+            return playerNames;
+        }
+
+        public List<Integer> scores() {
+            return scores;
+        }
+
+        public String currentPlayer() {
+            return currentPlayer;
+        }
+
+        public int tilesRemaining() {
+            return tilesRemaining;
+        }
+
+        public boolean gameOver() {
+            return gameOver;
+        }
+
+        /** @return the seed the game's tile bag was created with. */
+        public long seed() {
+            return seed;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Throughput and latency probe for {@link GameHost}.
+ * Run with `java GameHostBenchmark [games...]` after compilation; defaults to 1k, 10k and 50k games.
+ *
+ * Each round submits one move and one state query to every live game, so the
+ * queue of a single game never holds more than a couple of commands. The move
+ * uses a word missing from the dictionary, which exercises parsing and
+ * validation without ending games early.
+ *
+ * A second table passivates every game to disk and then times the first,
+ * reactivating command sent to each game one at a time.
+ */
+public final class GameHostBenchmark {
+    private static final int ROUNDS = 5;
+    private static final int WARMUP_GAMES = 2_000;
+    private static final String PROBE_MOVE = "H8 QZXQ A";
+    private static final Duration PASSIVATION_IDLE = Duration.ofMillis(100);
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = args.length == 0 ? new int[]{1_000, 10_000, 50_000} : parseSizes(args);
+        Dictionary dictionary = new Dictionary("words.txt");
+        run(dictionary, WARMUP_GAMES, false);
+        System.out.printf("%8s %12s %10s %10s %10s %10s%n", "games", "cmds/sec", "p50 us", "p99 us", "p999 us", "max us");
+        for (int size : sizes) {
+            run(dictionary, size, true);
+        }
+
+        System.out.printf("%n%8s %10s %10s %10s   (first command after passivation)%n", "games", "p50 us", "p99 us", "max us");
+        for (int size : sizes) {
+            reactivate(dictionary, size);
+        }
+    }
+
+    private static int[] parseSizes(String[] args) {
+        int[] sizes = new int[args.length];
+        for (int i = 0; i < args.length; i++) {
+            sizes[i] = Integer.parseInt(args[i]);
+        }
+        return sizes;
+    }
+
+    private static void run(Dictionary dictionary, int gameCount, boolean report) throws Exception {
+        try (GameHost host = new GameHost(dictionary)) {
+            long[] ids = new long[gameCount];
+            List<String> names = Arrays.asList("North", "South");
+            for (int i = 0; i < gameCount; i++) {
+                ids[i] = host.createGame(names);
+            }
+
+            long[] latencies = new long[gameCount * ROUNDS * 2];
+            AtomicInteger slot = new AtomicInteger();
+            long start = System.nanoTime();
+            for (int round = 0; round < ROUNDS; round++) {
+                CompletableFuture<?>[] pending = new CompletableFuture<?>[gameCount * 2];
+                for (int i = 0; i < gameCount; i++) {
+                    pending[2 * i] = timed(host.submitMove(ids[i], PROBE_MOVE), latencies, slot);
+                    pending[2 * i + 1] = timed(host.queryState(ids[i]), latencies, slot);
+                }
+                CompletableFuture.allOf(pending).join();
+            }
+            long elapsed = System.nanoTime() - start;
+
+            if (!report) {
+                return;
+            }
+            Arrays.sort(latencies);
+            double perSecond = latencies.length / (elapsed / 1_000_000_000.0);
+            System.out.printf("%8d %12.0f %10.1f %10.1f %10.1f %10.1f%n",
+                    gameCount, perSecond,
+                    micros(percentile(latencies, 0.50)),
+                    micros(percentile(latencies, 0.99)),
+                    micros(percentile(latencies, 0.999)),
+                    micros(latencies[latencies.length - 1]));
+        }
+    }
+
+    private static void reactivate(Dictionary dictionary, int gameCount) throws Exception {
+        Path directory = Files.createTempDirectory("scrabble-bench");
+        try (GameHost host = new GameHost(dictionary, directory, PASSIVATION_IDLE)) {
+            long[] ids = new long[gameCount];
+            List<String> names = Arrays.asList("North", "South");
+            for (int i = 0; i < gameCount; i++) {
+                ids[i] = host.createGame(names);
+            }
+            while (host.passivatedGames() < gameCount) {
+                Thread.sleep(PASSIVATION_IDLE.toMillis());
+                host.passivateIdle();
+            }
+
+            long[] latencies = new long[gameCount];
+            for (int i = 0; i < gameCount; i++) {
+                long submitted = System.nanoTime();
+                host.queryState(ids[i]).join();
+                latencies[i] = System.nanoTime() - submitted;
+            }
+            Arrays.sort(latencies);
+            System.out.printf("%8d %10.1f %10.1f %10.1f%n",
+                    gameCount,
+                    micros(percentile(latencies, 0.50)),
+                    micros(percentile(latencies, 0.99)),
+                    micros(latencies[latencies.length - 1]));
+        } finally {
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    private static <T> CompletableFuture<T> timed(CompletableFuture<T> future, long[] latencies, AtomicInteger slot) {
+        long submitted = System.nanoTime();
+        return future.whenComplete((value, error) -> latencies[slot.getAndIncrement()] = System.nanoTime() - submitted);
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        int index = (int) Math.min(sorted.length - 1, Math.round(fraction * (sorted.length - 1)));
+        return sorted[index];
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1_000.0;
+    }
+}
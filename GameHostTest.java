@@ -0,0 +1,497 @@
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GameHostTest {
+
+    private static final Dictionary DICTIONARY = new Dictionary("words.txt");
+
+    @Test
+    public void testCommandsForOneGameRunInOrder() {
+        try (GameHost host = new GameHost(DICTIONARY)) {
+            long id = host.createGame(Arrays.asList("Ann", "Bob"));
+            List<CompletableFuture<Game.MoveResult>> moves = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                moves.add(host.submitMove(id, "PASS"));
+            }
+            GameHost.GameView view = host.queryState(id).join();
+            for (CompletableFuture<Game.MoveResult> move : moves) {
+                assertTrue(move.isDone());
+                assertTrue(move.join().success());
+            }
+            assertEquals("Bob", view.currentPlayer());
+            assertFalse(view.gameOver());
+        }
+    }
+
+    @Test
+    public void testInvalidMoveReportsFailure() {
+        try (GameHost host = new GameHost(DICTIONARY)) {
+            long id = host.createGame(Arrays.asList("Ann", "Bob"));
+            Game.MoveResult result = host.submitMove(id, "Z99 WORD A").join();
+            assertFalse(result.success());
+            assertEquals("Ann", host.queryState(id).join().currentPlayer());
+        }
+    }
+
+    @Test
+    public void testClosedGameRejectsCommands() {
+        try (GameHost host = new GameHost(DICTIONARY)) {
+            long id = host.createGame(Arrays.asList("Ann", "Bob"));
+            assertEquals(1, host.liveGames());
+            host.closeGame(id).join();
+            assertEquals(0, host.liveGames());
+            try {
+                host.submitMove(id, "PASS").join();
+                assertTrue("closed game accepted a command", false);
+            } catch (CompletionException expected) {
+                assertTrue(expected.getCause() instanceof IllegalArgumentException);
+            }
+        }
+    }
+
+    @Test
+    public void testRegistryActorsNeverRaceOnOneModel() {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            GameRegistry<Scrabble_Model> registry = new GameRegistry<>(executor, 8);
+            long first = registry.register(new Scrabble_Model());
+            long second = registry.register(new Scrabble_Model());
+            assertTrue(first != second);
+            assertEquals(2, registry.size());
+
+            GameActor<Scrabble_Model> actor = registry.find(first);
+            actor.submit(model -> {
+                model.setupPlayers(4);
+                return null;
+            }).join();
+            List<CompletableFuture<Object>> turns = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                turns.add(actor.submit(model -> {
+                    model.advanceTurn();
+                    return null;
+                }));
+            }
+            CompletableFuture.allOf(turns.toArray(new CompletableFuture<?>[0])).join();
+            assertEquals(Integer.valueOf(0), actor.submit(model -> model.currentPlayerIndex).join());
+
+            try {
+                actor.submit(model -> {
+                    throw new AssertionError("command failed");
+                }).join();
+                assertTrue("failed command completed normally", false);
+            } catch (CompletionException expected) {
+                assertTrue(expected.getCause() instanceof AssertionError);
+            }
+            assertEquals(Integer.valueOf(0), actor.submit(model -> model.currentPlayerIndex).join());
+
+            assertTrue(registry.remove(second) != null);
+            assertEquals(null, registry.find(second));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testIdleGamePassivatesAndReactivates() throws Exception {
+        Path directory = Files.createTempDirectory("scrabble-passivation");
+        try (GameHost host = new GameHost(DICTIONARY, directory, Duration.ofMillis(50))) {
+            long id = host.createGame(Arrays.asList("Ann", "Bob"));
+            host.submitMove(id, "PASS").join();
+            GameHost.GameView before = host.queryState(id).join();
+
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (host.passivatedGames() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, host.passivatedGames());
+
+            GameHost.GameView after = host.queryState(id).join();
+            assertEquals(0, host.passivatedGames());
+            assertEquals(before.rows(), after.rows());
+            assertEquals(before.scores(), after.scores());
+            assertEquals(before.currentPlayer(), after.currentPlayer());
+            assertEquals(before.tilesRemaining(), after.tilesRemaining());
+        }
+    }
+
+    @Test
+    public void testSpectatorsGetMergedDiffsAndResync() {
+        try (GameHost host = new GameHost(DICTIONARY)) {
+            long id = host.createGame(Arrays.asList("Ann", "Bob"));
+            SpectatorFeed.Spectator spectator = host.watch(id).join();
+            SpectatorFeed.Update first = spectator.poll();
+            assertTrue(first.isSnapshot());
+            assertEquals("Ann", first.snapshot().currentPlayer());
+            assertEquals(null, spectator.poll());
+
+            host.submitMove(id, "PASS").join();
+            host.submitMove(id, "PASS").join();
+            host.submitMove(id, "PASS").join();
+            SpectatorFeed.Diff diff = spectator.poll().diff();
+            assertEquals(0, diff.fromSequence());
+            assertEquals(3, diff.toSequence());
+            assertEquals(0, diff.changedCells());
+            assertEquals(0, diff.scoreDelta(0));
+            assertEquals("Bob", diff.currentPlayer());
+
+            GameHost.GameView view = host.queryState(id).join();
+            SpectatorFeed feed = new SpectatorFeed(view, 2);
+            SpectatorFeed.Spectator slow = feed.subscribe();
+            assertTrue(slow.poll().isSnapshot());
+            for (int i = 0; i < 3; i++) {
+                feed.publish(new int[0], view);
+            }
+            SpectatorFeed.Update behind = slow.poll();
+            assertTrue(behind.isSnapshot());
+            assertEquals(3, slow.sequence());
+        }
+    }
+
+    @Test
+    public void testResyncRebuildsTheViewFromDiffs() {
+        try (GameHost host = new GameHost(DICTIONARY)) {
+            long id = host.createGame(Arrays.asList("Ann", "Bob"));
+            GameHost.GameView initial = host.queryState(id).join();
+            int size = initial.rows().size();
+            SpectatorFeed feed = new SpectatorFeed(initial, 2);
+            SpectatorFeed.Spectator steady = feed.subscribe();
+            assertTrue(steady.poll().isSnapshot());
+            String word = "QUIZ";
+            for (int i = 0; i < word.length(); i++) {
+                int square = 7 * size + 5 + i;
+                feed.publish(new int[] {square}, new char[] {word.charAt(i)}, new int[] {10 * (i + 1), i},
+                        90 - i, i % 2 == 0 ? "Bob" : "Ann", false);
+                assertEquals(word.charAt(i), steady.poll().diff().letterAt(0));
+            }
+            feed.publish(new int[0], new char[0], new int[] {40, 3}, 86, "Ann", true);
+
+            try (SpectatorFeed.Spectator late = feed.subscribe()) {
+                GameHost.GameView view = late.poll().snapshot();
+                assertEquals(5, late.sequence());
+                assertEquals(".....QUIZ......", view.rows().get(7));
+                assertTrue(view.board().contains("Q  U  I  Z"));
+                assertEquals(Arrays.asList(40, 3), view.scores());
+                assertEquals(86, view.tilesRemaining());
+                assertEquals("Ann", view.currentPlayer());
+                assertTrue(view.gameOver());
+                assertEquals(initial.playerNames(), view.playerNames());
+            }
+        }
+    }
+
+    @Test
+    public void testFeedExistsOnlyWhileWatched() throws Exception {
+        Path directory = Files.createTempDirectory("scrabble-watch");
+        try (GameHost host = new GameHost(DICTIONARY, directory, Duration.ofMillis(50))) {
+            long watched = host.createGame(Arrays.asList("Ann", "Bob"));
+            long unwatched = host.createGame(Arrays.asList("Cy", "Di"));
+            SpectatorFeed.Spectator spectator = host.watch(watched).join();
+            assertTrue(spectator.poll().isSnapshot());
+
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (host.passivatedGames() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Thread.sleep(150);
+            assertEquals(1, host.passivatedGames());
+            host.submitMove(watched, "PASS").join();
+            assertEquals("Bob", spectator.poll().diff().currentPlayer());
+
+            spectator.close();
+            host.submitMove(watched, "PASS").join();
+            host.submitMove(unwatched, "PASS").join();
+            try (SpectatorFeed.Spectator late = host.watch(unwatched).join()) {
+                SpectatorFeed.Update first = late.poll();
+                assertTrue(first.isSnapshot());
+                assertEquals("Di", first.snapshot().currentPlayer());
+            }
+            try (SpectatorFeed.Spectator again = host.watch(watched).join()) {
+                assertEquals("Ann", again.poll().snapshot().currentPlayer());
+            }
+        }
+    }
+
+    @Test
+    public void testReplayRunnerIsDeterministicAcrossThreads() throws Exception {
+        StringBuilder script = new StringBuilder("# recorded games\n");
+        for (int g = 0; g < 6; g++) {
+            script.append("GAME ").append(100 + g).append(" Ann Bob\n")
+                    .append("H8 QZXQ A\n")
+                    .append("Z99 WORD A\n")
+                    .append("pass\n\n")
+                    .append("PASS\n");
+        }
+        List<String> single = new ArrayList<>();
+        List<String> parallel = new ArrayList<>();
+        ReplayRunner.Summary summary = new ReplayRunner(DICTIONARY, 1)
+                .run(new java.io.StringReader(script.toString()), result -> single.add(strip(result.format())));
+        new ReplayRunner(DICTIONARY, 3)
+                .run(new java.io.StringReader(script.toString()), result -> parallel.add(strip(result.format())));
+
+        assertEquals(6, summary.games());
+        assertEquals(24, summary.moves());
+        assertEquals(12, summary.rejected());
+        assertEquals(single, parallel);
+        assertEquals("game 0 seed=100 played=0 passed=2 rejected=2 over=false scores=Ann:0,Bob:0", single.get(0));
+    }
+
+    private static String strip(String formatted) {
+        return formatted.substring(0, formatted.lastIndexOf(" time="));
+    }
+
+    @Test
+    public void testNotationTokenizerMatchesPlayTurnRules() {
+        NotationTokenizer tokenizer = new NotationTokenizer();
+        assertEquals(NotationTokenizer.OK, tokenizer.parse("  h8 hello d ", 15));
+        assertEquals(7, tokenizer.row());
+        assertEquals(7, tokenizer.col());
+        assertFalse(tokenizer.across());
+        assertEquals("HELLO", tokenizer.word("  h8 hello d "));
+        assertEquals(NotationTokenizer.TOKEN_COUNT, tokenizer.parse("H8", 15));
+        assertEquals(NotationTokenizer.ROW, tokenizer.parse("Z9 WORD", 15));
+        assertEquals(NotationTokenizer.COLUMN_NOT_NUMERIC, tokenizer.parse("Hx WORD", 15));
+        assertEquals(NotationTokenizer.COLUMN_RANGE, tokenizer.parse("H16 WORD", 15));
+        assertEquals(NotationTokenizer.DIRECTION, tokenizer.parse("H8 WORD X", 15));
+        assertTrue(NotationTokenizer.isPass(" Pass "));
+        assertFalse(NotationTokenizer.isPass("PASSES"));
+    }
+
+    @Test
+    public void testTimerWheelFiresAndCancelsManyTimeouts() throws Exception {
+        java.util.concurrent.atomic.AtomicInteger fired = new java.util.concurrent.atomic.AtomicInteger();
+        java.util.concurrent.atomic.AtomicLong worstLateness = new java.util.concurrent.atomic.AtomicLong();
+        try (TimerWheel wheel = new TimerWheel(Thread::new)) {
+            int count = 100_000;
+            List<TimerWheel.Timeout> timeouts = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                long due = System.nanoTime() + 300_000_000L + i * 5_000L;
+                timeouts.add(wheel.schedule(() -> {
+                    fired.incrementAndGet();
+                    worstLateness.accumulateAndGet(System.nanoTime() - due, Math::max);
+                }, due - System.nanoTime(), java.util.concurrent.TimeUnit.NANOSECONDS));
+            }
+            for (int i = 0; i < count; i += 2) {
+                assertTrue(timeouts.get(i).cancel());
+            }
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (wheel.pending() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, wheel.pending());
+            assertEquals(count / 2, fired.get());
+            assertFalse(timeouts.get(0).cancel());
+            assertTrue(timeouts.get(1).isExpired());
+        }
+        assertTrue("late by " + worstLateness.get() + " ns", worstLateness.get() < 1_000_000_000L);
+    }
+
+    @Test
+    public void testFlagFallPassesTurnAndChargesOvertime() throws Exception {
+        GameClock.Settings settings = GameClock.Settings.of(
+                Duration.ofMillis(30), Duration.ZERO, Duration.ofMillis(20), 10, 1);
+        try (GameHost host = new GameHost(DICTIONARY)) {
+            long id = host.createGame(Arrays.asList("Ann", "Bob"), 7L, settings);
+            long deadline = System.currentTimeMillis() + 5_000;
+            GameHost.GameView view = host.queryState(id).join();
+            while (view.currentPlayer().equals("Ann") && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+                view = host.queryState(id).join();
+            }
+            assertEquals("Bob", view.currentPlayer());
+            assertEquals(Integer.valueOf(-10), view.scores().get(0));
+            long[] clocks = host.queryClock(id).join();
+            assertEquals(2, clocks.length);
+            assertTrue(clocks[0] <= -20);
+            assertTrue(host.submitMove(id, "PASS").join().success());
+        }
+    }
+
+    @Test
+    public void testClosingATimedGameCancelsItsClock() {
+        GameClock.Settings settings = GameClock.Settings.of(
+                Duration.ofHours(1), Duration.ZERO, Duration.ofMinutes(1), 10, 1);
+        try (GameHost host = new GameHost(DICTIONARY)) {
+            long id = host.createGame(Arrays.asList("Ann", "Bob"), 7L, settings);
+            host.queryClock(id).join();
+            assertEquals(1, host.pendingClockEvents());
+            host.closeGame(id).join();
+            assertEquals(0, host.pendingClockEvents());
+        }
+    }
+
+    @Test
+    public void testGamesOnTheClockStayInMemory() throws Exception {
+        GameClock.Settings settings = GameClock.Settings.of(
+                Duration.ofHours(1), Duration.ZERO, Duration.ofMinutes(1), 10, 1);
+        Path directory = Files.createTempDirectory("scrabble-timed");
+        try (GameHost host = new GameHost(DICTIONARY, directory, Duration.ofMillis(50))) {
+            long timed = host.createGame(Arrays.asList("Ann", "Bob"), 7L, settings);
+            host.createGame(Arrays.asList("Cy", "Di"));
+            host.queryClock(timed).join();
+
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (host.passivatedGames() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Thread.sleep(150);
+            assertEquals(1, host.passivatedGames());
+            assertEquals(1, host.pendingClockEvents());
+        }
+    }
+
+    @Test
+    public void testFlaggedPlayersKeepPassingUntilTheGameEnds() throws Exception {
+        GameClock.Settings settings = GameClock.Settings.of(
+                Duration.ofMillis(30), Duration.ZERO, Duration.ofMillis(20), 10, 1);
+        try (GameHost host = new GameHost(DICTIONARY)) {
+            long id = host.createGame(Arrays.asList("Ann", "Bob"), 7L, settings);
+            long deadline = System.currentTimeMillis() + 5_000;
+            GameHost.GameView view = host.queryState(id).join();
+            while (!view.gameOver() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+                view = host.queryState(id).join();
+            }
+            assertTrue("flagged players' turns stopped passing", view.gameOver());
+            assertEquals(Arrays.asList(-10, -10), view.scores());
+        }
+    }
+
+    @Test
+    public void testMoveLogGroupsAppendsAndDropsTornTail() throws Exception {
+        Path file = Files.createTempFile("scrabble-moves", ".log");
+        int writers = 8;
+        int perWriter = 2_000;
+        try (MoveLog log = new MoveLog(file, Thread::new)) {
+            ExecutorService executor = Executors.newFixedThreadPool(writers);
+            List<CompletableFuture<Void>> durable = new java.util.concurrent.CopyOnWriteArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                long game = w;
+                executor.execute(() -> {
+                    for (int i = 0; i < perWriter; i++) {
+                        durable.add(log.append(game, "move " + i));
+                    }
+                });
+            }
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(30, java.util.concurrent.TimeUnit.SECONDS));
+            CompletableFuture.allOf(durable.toArray(new CompletableFuture<?>[0])).join();
+            assertEquals(writers * perWriter, log.records());
+            assertTrue(log.batches() < log.records());
+        }
+
+        int[] next = new int[writers];
+        int read = MoveLog.read(file, (game, entry) -> {
+            assertEquals("move " + next[game.intValue()], entry);
+            next[game.intValue()]++;
+        });
+        assertEquals(writers * perWriter, read);
+
+        Files.write(file, new byte[]{0, 0, 0, 9, 1, 2}, java.nio.file.StandardOpenOption.APPEND);
+        try (MoveLog log = new MoveLog(file, Thread::new)) {
+            log.append(99, "after crash").join();
+        }
+        List<String> tail = new ArrayList<>();
+        assertEquals(writers * perWriter + 1, MoveLog.read(file, (game, entry) -> tail.add(game + ":" + entry)));
+        assertEquals("99:after crash", tail.get(tail.size() - 1));
+        Files.delete(file);
+    }
+
+    @Test
+    public void testAppendsRacingCloseAlwaysComplete() throws Exception {
+        Path file = Files.createTempFile("scrabble-close", ".log");
+        for (int round = 0; round < 20; round++) {
+            MoveLog log = new MoveLog(file, Thread::new);
+            List<CompletableFuture<Void>> futures = new java.util.concurrent.CopyOnWriteArrayList<>();
+            List<Thread> appenders = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                Thread appender = new Thread(() -> {
+                    try {
+                        while (true) {
+                            futures.add(log.append(1, "move"));
+                        }
+                    } catch (IllegalStateException closed) {
+                        // Expected once close() has started.
+                    }
+                });
+                appender.start();
+                appenders.add(appender);
+            }
+            Thread.sleep(2);
+            log.close();
+            for (Thread appender : appenders) {
+                appender.join();
+            }
+            for (CompletableFuture<Void> future : futures) {
+                try {
+                    future.get(5, java.util.concurrent.TimeUnit.SECONDS);
+                } catch (java.util.concurrent.ExecutionException failed) {
+                    assertTrue(failed.getCause() instanceof IllegalStateException);
+                }
+            }
+        }
+        Files.delete(file);
+    }
+
+    @Test
+    public void testHostRecordsGamesAndMovesInItsLog() throws Exception {
+        Path file = Files.createTempFile("scrabble-host", ".log");
+        try (MoveLog log = new MoveLog(file, Thread::new)) {
+            try (GameHost host = new GameHost(DICTIONARY, log)) {
+                long id = host.createGame(Arrays.asList("Ann", "Bob"), 42L);
+                assertTrue(host.submitMove(id, " pass ").join().success());
+                assertFalse(host.submitMove(id, "Z99 WORD A").join().success());
+                assertTrue(host.submitMove(id, "PASS").join().success());
+            }
+        }
+        List<String> entries = new ArrayList<>();
+        MoveLog.read(file, (game, entry) -> entries.add(entry));
+        assertEquals(Arrays.asList("GAME 42 Ann Bob", "PASS", "PASS"), entries);
+        Files.delete(file);
+    }
+
+    @Test
+    public void testLatencyHistogramPercentilesStayWithinBucketError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value * 1_000);
+        }
+        assertEquals(100_000, histogram.count());
+        assertEquals(100_000_000L, histogram.max());
+        long p50 = histogram.percentile(0.50);
+        long p999 = histogram.percentile(0.999);
+        assertTrue("p50 " + p50, p50 >= 50_000_000L && p50 <= 50_000_000L * 65 / 64);
+        assertTrue("p999 " + p999, p999 >= 99_900_000L && p999 <= 99_900_000L * 65 / 64);
+        assertEquals(100_000_000L, histogram.percentile(1.0));
+
+        LatencyHistogram small = new LatencyHistogram();
+        small.record(3);
+        small.add(histogram);
+        assertEquals(3, small.percentile(0.0));
+        assertEquals(100_001, small.count());
+    }
+
+    @Test
+    public void testLoadGeneratorPlaysLegalMovesAndTimesEveryOperation() throws Exception {
+        LoadGenerator generator = new LoadGenerator(new Scrabble_Model.Dictionary("words.txt"),
+                BoardConfigLoader.loadLibrary(java.nio.file.Paths.get("boards")).require("Classic"));
+        LoadGenerator.Stage stage = generator.run(8, 2, Duration.ZERO, Duration.ofMillis(500));
+        assertTrue(stage.play().count() > 0);
+        assertTrue(stage.save().count() > 0);
+        assertTrue(stage.opsPerSecond() > 0);
+        assertTrue(stage.play().percentile(0.99) <= stage.play().max());
+    }
+}
@@ -0,0 +1,272 @@
+/**
+ * Immutable snapshot of a game for search and simulation.
+ *
+ * {@link #play} returns a new position and leaves this one untouched, so a
+ * search can branch from any position as often as it likes. Unchanged parts
+ * are shared, not copied. The grid and blank flags are held as one array per
+ * row, and a move copies only the row index and the rows it writes to. The
+ * occupancy bitboards, racks (two packed longs per player, see
+ * {@link Rack#lowBits()}), scores and bag counts are small arrays of a few
+ * dozen entries. A branch therefore costs roughly the tiles placed, not the
+ * board, in both time and memory. No row or array is modified once a
+ * position holds it, so positions may be shared freely between threads.
+ *
+ * Bag draws use the same {@link GameRandom} sequence as
+ * {@link Scrabble_Model.TileBag}. Playing a move on a position taken with
+ * {@link Scrabble_Model#toPosition()} refills the racks exactly as the live
+ * game would. Moves are checked with a {@link RulesKernel} for placement and
+ * rack; dictionary checks are left to the caller.
+ *
+ * Each position carries a version, one more than the position it was played
+ * from. {@link Scrabble_Model#snapshot()} publishes positions of the live
+ * game under increasing versions.
+ */
+public final class GamePosition {
+    /** Tiles a rack is refilled to after each move. */
+    public static final int RACK_SIZE = 7;
+
+    private static final ThreadLocal<RulesKernel> KERNEL =
+            ThreadLocal.withInitial(() -> new RulesKernel(Scrabble_Model.Board.MAX_SIZE));
+
+    private final CompiledLayout layout;
+    private final char[][] grid;
+    private final boolean[][] blanks;
+    private final long[] rowBits;
+    private final long[] colBits;
+    private final int tilesOnBoard;
+    private final long[] racks;
+    private final int[] scores;
+    private final int[] bag;
+    private final int bagSize;
+    private final long bagState;
+    private final int current;
+    private final long version;
+
+    /**
+     * Builds a position from arrays the caller hands over and no longer
+     * changes. Derives the bitboards in one pass over the grid.
+     */
+    static GamePosition of(CompiledLayout layout, char[][] grid, boolean[][] blanks, long[] racks, int[] scores,
+                           int[] bag, long bagState, int current, long version) {
+        long[] rowBits = new long[grid.length];
+        long[] colBits = new long[grid.length];
+        int tiles = 0;
+        for (int r = 0; r < grid.length; r++) {
+            for (int c = 0; c < grid.length; c++) {
+                if (grid[r][c] != '\0') {
+                    rowBits[r] |= 1L << c;
+                    colBits[c] |= 1L << r;
+                    tiles++;
+                }
+            }
+        }
+        return new GamePosition(layout, grid, blanks, rowBits, colBits, tiles, racks, scores, bag, bagState,
+                current, version);
+    }
+
+    private GamePosition(CompiledLayout layout, char[][] grid, boolean[][] blanks, long[] rowBits, long[] colBits,
+                         int tilesOnBoard, long[] racks, int[] scores, int[] bag, long bagState, int current,
+                         long version) {
+        this.layout = layout;
+        this.grid = grid;
+        this.blanks = blanks;
+        this.rowBits = rowBits;
+        this.colBits = colBits;
+        this.tilesOnBoard = tilesOnBoard;
+        this.racks = racks;
+        this.scores = scores;
+        this.bag = bag;
+        int total = 0;
+        for (int count : bag) {
+            total += count;
+        }
+        this.bagSize = total;
+        this.bagState = bagState;
+        this.current = current;
+        this.version = version;
+    }
+
+    /**
+     * Checks a move for the player to act without playing it.
+     *
+     * @return {@link RulesKernel#OK} or the failure code from {@link RulesKernel#plan}
+     * @throws IllegalStateException when the position has no players
+     */
+    public int check(int row, int col, boolean across, String word) {
+        requirePlayers();
+        RulesKernel rules = KERNEL.get();
+        rules.load(rowBits, colBits, tilesOnBoard);
+        return rules.plan(grid, row, col, across, word, rack(current));
+    }
+
+    /** Same as {@link #play(int, int, boolean, String)} for a model placement. */
+    public GamePosition play(Scrabble_Model.Placement placement) {
+        return play(placement.getRow(), placement.getCol(),
+                placement.getDirection() == Scrabble_Model.Placement.Direction.ACROSS, placement.getWord());
+    }
+
+    /**
+     * Plays a move for the player to act: places the tiles, adds the score,
+     * refills that player's rack from the bag and passes the turn.
+     *
+     * @return the position after the move
+     * @throws IllegalArgumentException when the kernel rejects the move
+     * @throws IllegalStateException when the position has no players
+     */
+    public GamePosition play(int row, int col, boolean across, String word) {
+        requirePlayers();
+        RulesKernel rules = KERNEL.get();
+        rules.load(rowBits, colBits, tilesOnBoard);
+        Rack rack = rack(current);
+        int status = rules.plan(grid, row, col, across, word, rack);
+        if (status != RulesKernel.OK) {
+            throw new IllegalArgumentException(RulesKernel.describe(status));
+        }
+        int points = rules.score(blanks, layout);
+        rules.consume(rack);
+
+        char[][] nextGrid = grid.clone();
+        boolean[][] nextBlanks = blanks.clone();
+        long[] nextRows = rowBits.clone();
+        long[] nextCols = colBits.clone();
+        int r = row;
+        int c = col;
+        for (int i = 0; i < word.length(); i++) {
+            if (grid[r][c] == '\0') {
+                if (nextGrid[r] == grid[r]) {
+                    nextGrid[r] = grid[r].clone();
+                    nextBlanks[r] = blanks[r].clone();
+                }
+                nextRows[r] |= 1L << c;
+                nextCols[c] |= 1L << r;
+            }
+            if (across) c++; else r++;
+        }
+        rules.apply(nextGrid, nextBlanks, word);
+
+        int[] nextBag = bag;
+        long nextState = bagState;
+        if (rack.size() < RACK_SIZE && bagSize > 0) {
+            TileCounts counts = new TileCounts(bag);
+            GameRandom random = new GameRandom(bagState);
+            while (rack.size() < RACK_SIZE && !counts.isEmpty()) {
+                rack.add(counts.draw(random));
+            }
+            nextBag = counts.toArray();
+            nextState = random.getState();
+        }
+        long[] nextRacks = racks.clone();
+        nextRacks[current * 2] = rack.lowBits();
+        nextRacks[current * 2 + 1] = rack.highBits();
+        int[] nextScores = scores.clone();
+        nextScores[current] += points;
+        return new GamePosition(layout, nextGrid, nextBlanks, nextRows, nextCols,
+                tilesOnBoard + rules.newTileCount(), nextRacks, nextScores, nextBag, nextState,
+                (current + 1) % scores.length, version + 1);
+    }
+
+    /**
+     * Builds the live game's next position after a move that only added
+     * tiles in rows {@code firstRow..lastRow} of {@code grid}. Those rows are
+     * copied and every other row is shared with this position, so publishing
+     * a move costs its rows rather than the board.
+     *
+     * @param grid live board, equal to this position outside the given rows
+     */
+    GamePosition withRows(char[][] grid, boolean[][] blanks, int firstRow, int lastRow, long[] racks,
+                          int[] scores, int[] bag, long bagState, int current, long version) {
+        char[][] nextGrid = this.grid.clone();
+        boolean[][] nextBlanks = this.blanks.clone();
+        long[] nextRows = rowBits.clone();
+        long[] nextCols = colBits.clone();
+        int tiles = tilesOnBoard;
+        for (int r = firstRow; r <= lastRow; r++) {
+            nextGrid[r] = grid[r].clone();
+            nextBlanks[r] = blanks[r].clone();
+            long bits = 0;
+            for (int c = 0; c < nextGrid[r].length; c++) {
+                if (nextGrid[r][c] != '\0') {
+                    bits |= 1L << c;
+                    nextCols[c] |= 1L << r;
+                }
+            }
+            tiles += Long.bitCount(bits) - Long.bitCount(rowBits[r]);
+            nextRows[r] = bits;
+        }
+        return new GamePosition(layout, nextGrid, nextBlanks, nextRows, nextCols, tiles, racks, scores, bag,
+                bagState, current, version);
+    }
+
+    /**
+     * @return the position with the turn passed to the next player
+     * @throws IllegalStateException when the position has no players
+     */
+    public GamePosition pass() {
+        requirePlayers();
+        return new GamePosition(layout, grid, blanks, rowBits, colBits, tilesOnBoard,
+                racks, scores, bag, bagState, (current + 1) % scores.length, version + 1);
+    }
+
+    private void requirePlayers() {
+        if (scores.length == 0) {
+            throw new IllegalStateException("No players have joined the game.");
+        }
+    }
+
+    /** @return the version of this position; later positions of a game have higher versions. */
+    public long version() {
+        return version;
+    }
+
+    /** @return number of rows, equal to the number of columns. */
+    public int size() {
+        return grid.length;
+    }
+
+    /** @return the letter at a square, or '\0' when it is empty. */
+    public char letterAt(int row, int col) {
+        return grid[row][col];
+    }
+
+    /** @return true when the tile at a square is a blank. */
+    public boolean isBlankAt(int row, int col) {
+        return blanks[row][col];
+    }
+
+    /** @return number of tiles on the board. */
+    public int tilesOnBoard() {
+        return tilesOnBoard;
+    }
+
+    /** @return index of the player to act. */
+    public int currentPlayer() {
+        return current;
+    }
+
+    /** @return number of players. */
+    public int playerCount() {
+        return scores.length;
+    }
+
+    /** @return score of player {@code player}. */
+    public int score(int player) {
+        return scores[player];
+    }
+
+    /** @return a fresh copy of the rack of player {@code player}. */
+    public Rack rack(int player) {
+        Rack rack = new Rack();
+        rack.set(racks[player * 2], racks[player * 2 + 1]);
+        return rack;
+    }
+
+    /** @return number of tiles left in the bag. */
+    public int bagSize() {
+        return bagSize;
+    }
+
+    /** @return the premium layout the position is scored with. */
+    public CompiledLayout getLayout() {
+        return layout;
+    }
+}
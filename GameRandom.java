@@ -0,0 +1,89 @@
+import java.util.SplittableRandom;
+
+/**
+ * Seedable, splittable random source for tile draws.
+ *
+ * Uses the SplitMix64 algorithm that backs {@link SplittableRandom}, but keeps
+ * its single {@code long} of state readable so saves and snapshots can record
+ * it and replay a game bit-for-bit. Instances are not thread-safe; give each
+ * game or simulation thread its own stream via {@link #split()}.
+ */
+public final class GameRandom {
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private long state;
+
+    /**
+     * @param seed starting state; equal seeds produce equal sequences
+     */
+    public GameRandom(long seed) {
+        this.state = seed;
+    }
+
+    /** @return a generator seeded from system entropy. */
+    public static GameRandom fromEntropy() {
+        return new GameRandom(newSeed());
+    }
+
+    /** @return a fresh seed drawn from system entropy. */
+    public static long newSeed() {
+        return new SplittableRandom().nextLong();
+    }
+
+    /**
+     * Derives the seed of the {@code index}-th independent stream of a root seed,
+     * so parallel workers can pick their stream without coordinating.
+     */
+    public static long seedFor(long rootSeed, long index) {
+        return mix64(rootSeed + (index + 1) * GOLDEN_GAMMA);
+    }
+
+    /** @return the next 64 random bits. */
+    public long nextLong() {
+        state += GOLDEN_GAMMA;
+        return mix64(state);
+    }
+
+    /**
+     * @param bound exclusive upper bound, must be positive
+     * @return a uniformly distributed value in {@code [0, bound)}
+     */
+    public int nextInt(int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("bound must be positive");
+        }
+        int mask = bound - 1;
+        int r = (int) (nextLong() >>> 33);
+        if ((bound & mask) == 0) {
+            return r & mask;
+        }
+        // Reject the top sliver of the range so every value is equally likely.
+        for (int u = r; u - (r = u % bound) + mask < 0; u = (int) (nextLong() >>> 33)) {
+        }
+        return r;
+    }
+
+    /**
+     * Starts a new generator whose sequence is statistically independent of
+     * this one. Advances this generator by one step.
+     */
+    public GameRandom split() {
+        return new GameRandom(mix64(nextLong()));
+    }
+
+    /** @return the current state, enough to resume the sequence later. */
+    public long getState() {
+        return state;
+    }
+
+    /** @param state value previously returned by {@link #getState()} */
+    public void setState(long state) {
+        this.state = state;
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
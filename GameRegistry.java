@@ -0,0 +1,104 @@
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * Sharded id-to-actor registry for hosted games.
+ *
+ * Games are spread over a power-of-two number of shards. The low bits of an id
+ * name its shard and the high bits come from that shard's own counter, so
+ * registering, looking up and removing games never touch a shared counter or
+ * lock. Each game is wrapped in a {@link GameActor}, which keeps commands for
+ * the same game in order while different games run in parallel.
+ *
+ * @param <T> model type, typically {@link Game} or {@link Scrabble_Model}
+ */
+public final class GameRegistry<T> {
+    private final Executor executor;
+    private final Shard<T>[] shards;
+    private final int shardMask;
+
+    /** Creates a registry with a shard count scaled to the available cores. */
+    public GameRegistry(Executor executor) {
+        this(executor, Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    /**
+     * @param executor runs the actors' drain tasks
+     * @param minShards lower bound on the shard count, rounded up to a power of two
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public GameRegistry(Executor executor, int minShards) {
+        if (minShards < 1) {
+            throw new IllegalArgumentException("minShards must be positive");
+        }
+        this.executor = Objects.requireNonNull(executor, "executor");
+        int count = Integer.highestOneBit(minShards);
+        if (count < minShards) {
+            count <<= 1;
+        }
+        this.shards = new Shard[count];
+        for (int i = 0; i < count; i++) {
+            shards[i] = new Shard<>();
+        }
+        this.shardMask = count - 1;
+    }
+
+    /**
+     * Wraps the model in a new actor and stores it under a fresh id.
+     *
+     * @return id of the registered game, always positive
+     */
+    public long register(T game) {
+        int index = ThreadLocalRandom.current().nextInt(shards.length);
+        Shard<T> shard = shards[index];
+        long id = (shard.nextSequence.incrementAndGet() * shards.length) | index;
+        shard.actors.put(id, new GameActor<>(game, executor));
+        return id;
+    }
+
+    /** @return the actor for the id, or {@code null} when none is registered. */
+    public GameActor<T> find(long id) {
+        return shardFor(id).actors.get(id);
+    }
+
+    /** @return the removed actor, or {@code null} when none was registered. */
+    public GameActor<T> remove(long id) {
+        return shardFor(id).actors.remove(id);
+    }
+
+    /** @return total number of registered games. */
+    public int size() {
+        int total = 0;
+        for (Shard<T> shard : shards) {
+            total += shard.actors.size();
+        }
+        return total;
+    }
+
+    /** Visits every registered game; concurrent updates may or may not be seen. */
+    public void forEach(BiConsumer<Long, GameActor<T>> visitor) {
+        for (Shard<T> shard : shards) {
+            shard.actors.forEach(visitor);
+        }
+    }
+
+    /** Drops every registered game. */
+    public void clear() {
+        for (Shard<T> shard : shards) {
+            shard.actors.clear();
+        }
+    }
+
+    private Shard<T> shardFor(long id) {
+        return shards[(int) (id & shardMask)];
+    }
+
+    private static final class Shard<T> {
+        private final ConcurrentHashMap<Long, GameActor<T>> actors = new ConcurrentHashMap<>();
+        private final AtomicLong nextSequence = new AtomicLong();
+    }
+}
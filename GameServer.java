@@ -0,0 +1,486 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channel;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Non-blocking line protocol in front of a {@link GameHost}.
+ *
+ * A small fixed set of event loops, each with its own {@link Selector},
+ * multiplexes every client socket. Clients send one command per line:
+ * <pre>
+ *   NEW Ann Bob      start a game and join it      -> OK GAME &lt;id&gt;
+ *   JOIN &lt;id&gt;        join an existing game          -> OK GAME &lt;id&gt;
+ *   H8 HELLO A       move in Game.playTurn notation -> OK &lt;points&gt; &lt;message&gt;
+ *   PASS             pass the turn                  -> OK 0 &lt;message&gt;
+ *   STATE            scores, bag size and turn      -> STATE current=.. bag=.. over=.. scores=..
+ *   BOARD            board rows, '.' for empty      -> BOARD &lt;row&gt; ... &lt;row&gt;
+ *   CLOSE            end the joined game            -> OK CLOSED
+ *   QUIT             close the connection           -> BYE
+ * </pre>
+ * Failures answer {@code ERR <message>}. Commands may be pipelined; replies come
+ * back in request order. Replies ready in the same loop pass are written with a
+ * single socket write, and a client that stops reading has its input paused
+ * once too many replies or bytes are waiting for it.
+ */
+public final class GameServer implements AutoCloseable {
+    private static final int MAX_LINE = 1024;
+    private static final int OUTPUT_HIGH_WATER = 64 * 1024;
+    private static final int MAX_IN_FLIGHT = 64;
+
+    private final GameHost host;
+    private final ServerSocketChannel server;
+    private final EventLoop[] loops;
+    private int nextLoop;
+
+    /**
+     * Binds the server and starts its event loops.
+     *
+     * @param host engine that owns the games
+     * @param address bind address; port 0 picks a free port
+     * @param loopCount number of selector threads
+     */
+    public GameServer(GameHost host, InetSocketAddress address, int loopCount) throws IOException {
+        if (loopCount < 1) {
+            throw new IllegalArgumentException("loopCount must be positive");
+        }
+        this.host = Objects.requireNonNull(host, "host");
+        this.server = ServerSocketChannel.open();
+        server.bind(address);
+        server.configureBlocking(false);
+        this.loops = new EventLoop[loopCount];
+        for (int i = 0; i < loopCount; i++) {
+            loops[i] = new EventLoop(i);
+        }
+        server.register(loops[0].selector, SelectionKey.OP_ACCEPT);
+        for (EventLoop loop : loops) {
+            loop.thread.start();
+        }
+    }
+
+    /** @return the port the server is listening on. */
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    /** Blocks until every event loop has stopped. */
+    public void awaitClose() throws InterruptedException {
+        for (EventLoop loop : loops) {
+            loop.thread.join();
+        }
+    }
+
+    /** Stops accepting, closes every client connection and stops the loops. */
+    @Override
+    public void close() throws IOException {
+        server.close();
+        for (EventLoop loop : loops) {
+            loop.shutdown();
+        }
+    }
+
+    /**
+     * Starts a server on localhost. Arguments: {@code [port] [loops]}.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7311;
+        int loopCount = args.length > 1 ? Integer.parseInt(args[1]) : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        GameHost host = new GameHost(new Dictionary("words.txt"));
+        GameServer server = new GameServer(host, new InetSocketAddress("localhost", port), loopCount);
+        System.out.println("Scrabble server listening on localhost:" + server.getPort() + " with " + loopCount + " loop(s).");
+        server.awaitClose();
+    }
+
+    /**
+     * Hands every pending socket to a loop. A failed accept, such as running
+     * out of file descriptors, is logged and retried on the next select; it
+     * never stops the loop serving its existing clients.
+     */
+    private void accept() {
+        while (true) {
+            SocketChannel channel;
+            try {
+                channel = server.accept();
+            } catch (IOException ex) {
+                System.err.println("Scrabble server failed to accept a connection: " + ex.getMessage());
+                return;
+            }
+            if (channel == null) {
+                return;
+            }
+            try {
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+            } catch (IOException ex) {
+                closeQuietly(channel);
+                continue;
+            }
+            EventLoop loop = loops[nextLoop];
+            nextLoop = (nextLoop + 1) % loops.length;
+            loop.hand(channel);
+        }
+    }
+
+    private CompletableFuture<String> dispatch(Connection connection, String line) {
+        String[] parts = line.split("\\s+", 2);
+        String verb = parts[0].toUpperCase(Locale.ROOT);
+        String rest = parts.length > 1 ? parts[1] : "";
+        switch (verb) {
+            case "NEW":
+                try {
+                    List<String> names = Arrays.asList(rest.trim().split("\\s+"));
+                    connection.gameId = host.createGame(names);
+                    return CompletableFuture.completedFuture("OK GAME " + connection.gameId);
+                } catch (IllegalArgumentException ex) {
+                    return CompletableFuture.completedFuture("ERR " + ex.getMessage());
+                }
+            case "JOIN":
+                try {
+                    long id = Long.parseLong(rest.trim());
+                    if (!host.isHosted(id)) {
+                        return CompletableFuture.completedFuture("ERR Unknown game: " + id);
+                    }
+                    connection.gameId = id;
+                    return host.queryState(id).thenApply(view -> "OK GAME " + id);
+                } catch (NumberFormatException ex) {
+                    return CompletableFuture.completedFuture("ERR Game id must be numeric.");
+                }
+            case "QUIT":
+                connection.closing = true;
+                return CompletableFuture.completedFuture("BYE");
+            default:
+                break;
+        }
+        if (connection.gameId == 0) {
+            return CompletableFuture.completedFuture("ERR Join or create a game first.");
+        }
+        switch (verb) {
+            case "STATE":
+                return host.queryState(connection.gameId).thenApply(GameServer::formatState);
+            case "BOARD":
+                return host.queryState(connection.gameId).thenApply(view -> "BOARD " + String.join(" ", view.rows()));
+            case "CLOSE":
+                long id = connection.gameId;
+                connection.gameId = 0;
+                return host.closeGame(id).thenApply(view -> "OK CLOSED");
+            default:
+                return host.submitMove(connection.gameId, line).thenApply(result -> result.success()
+                        ? "OK " + result.points() + " " + result.message()
+                        : "ERR " + result.message());
+        }
+    }
+
+    private static void closeQuietly(Channel channel) {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static String formatState(GameHost.GameView view) {
+        StringBuilder sb = new StringBuilder("STATE current=").append(view.currentPlayer())
+                .append(" bag=").append(view.tilesRemaining())
+                .append(" over=").append(view.gameOver())
+                .append(" scores=");
+        for (int i = 0; i < view.playerNames().size(); i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(view.playerNames().get(i)).append(':').append(view.scores().get(i));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * One selector thread. Only this thread touches the connections it owns;
+     * other threads hand it new sockets or completed replies through queues.
+     */
+    private final class EventLoop implements Runnable {
+        private final Selector selector;
+        private final Thread thread;
+        private final Queue<SocketChannel> incoming = new ConcurrentLinkedQueue<>();
+        private final Queue<Connection> ready = new ConcurrentLinkedQueue<>();
+        private volatile boolean running = true;
+
+        EventLoop(int index) throws IOException {
+            this.selector = Selector.open();
+            this.thread = new Thread(this, "scrabble-loop-" + index);
+            thread.setDaemon(true);
+        }
+
+        void hand(SocketChannel channel) {
+            incoming.add(channel);
+            if (Thread.currentThread() != thread) {
+                selector.wakeup();
+            }
+        }
+
+        void signal(Connection connection) {
+            if (connection.signalled.compareAndSet(false, true)) {
+                ready.add(connection);
+                if (Thread.currentThread() != thread) {
+                    selector.wakeup();
+                }
+            }
+        }
+
+        void shutdown() {
+            running = false;
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    selector.select();
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        handleKey(key);
+                    }
+                    // Sockets accepted by this loop above are registered before it selects again.
+                    registerIncoming();
+                    Connection connection;
+                    while ((connection = ready.poll()) != null) {
+                        connection.signalled.set(false);
+                        if (connection.channel.isOpen()) {
+                            try {
+                                connection.pump();
+                                connection.flush();
+                            } catch (IOException ex) {
+                                connection.close();
+                            }
+                        }
+                    }
+                }
+            } catch (IOException | ClosedSelectorException ex) {
+                running = false;
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    closeQuietly(key.channel());
+                }
+                try {
+                    selector.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+
+        private void registerIncoming() {
+            SocketChannel channel;
+            while ((channel = incoming.poll()) != null) {
+                try {
+                    SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                    key.attach(new Connection(this, channel, key));
+                } catch (IOException ex) {
+                    closeQuietly(channel);
+                }
+            }
+        }
+
+        private void handleKey(SelectionKey key) {
+            if (!key.isValid()) {
+                return;
+            }
+            if (key.isAcceptable()) {
+                accept();
+                return;
+            }
+            Connection connection = (Connection) key.attachment();
+            try {
+                if (key.isReadable()) {
+                    connection.read();
+                }
+                if (key.isValid() && key.isWritable()) {
+                    connection.flush();
+                }
+            } catch (IOException ex) {
+                connection.close();
+            }
+        }
+    }
+
+    /** Per-socket state owned by a single event loop. */
+    private final class Connection {
+        private final EventLoop loop;
+        private final SocketChannel channel;
+        private final SelectionKey key;
+        private final ByteBuffer input = ByteBuffer.allocate(MAX_LINE * 2);
+        private ByteBuffer output = ByteBuffer.allocate(4096);
+        private final Deque<CompletableFuture<String>> replies = new ArrayDeque<>();
+        private final AtomicBoolean signalled = new AtomicBoolean(false);
+        private long gameId;
+        private boolean closing;
+
+        Connection(EventLoop loop, SocketChannel channel, SelectionKey key) {
+            this.loop = loop;
+            this.channel = channel;
+            this.key = key;
+        }
+
+        void read() throws IOException {
+            int count = channel.read(input);
+            if (count < 0) {
+                closing = true;
+            }
+            pump();
+            flush();
+        }
+
+        /**
+         * Moves finished replies to the output and dispatches lines waiting in
+         * the input while fewer than {@link #MAX_IN_FLIGHT} replies are
+         * outstanding.
+         */
+        void pump() {
+            collectReplies();
+            while (dispatchLines()) {
+                collectReplies();
+            }
+        }
+
+        /**
+         * Submits complete lines from the input until the in-flight cap is
+         * reached. Lines past the cap stay in the buffer for a later pass.
+         *
+         * @return true when at least one line was submitted
+         */
+        private boolean dispatchLines() {
+            input.flip();
+            int lineStart = input.position();
+            boolean submitted = false;
+            for (int i = input.position(); i < input.limit() && !closing && replies.size() < MAX_IN_FLIGHT; i++) {
+                if (input.get(i) == '\n') {
+                    String line = decode(lineStart, i);
+                    lineStart = i + 1;
+                    if (!line.isEmpty()) {
+                        submit(line);
+                        submitted = true;
+                    }
+                }
+            }
+            input.position(lineStart);
+            input.compact();
+            if (!input.hasRemaining() && !holdsLine()) {
+                submitReply(CompletableFuture.completedFuture("ERR Line too long."));
+                closing = true;
+            }
+            return submitted;
+        }
+
+        /** @return true when the input buffer holds a complete line. */
+        private boolean holdsLine() {
+            for (int i = 0; i < input.position(); i++) {
+                if (input.get(i) == '\n') {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private String decode(int start, int end) {
+            byte[] bytes = new byte[end - start];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = input.get(start + i);
+            }
+            return new String(bytes, StandardCharsets.UTF_8).trim();
+        }
+
+        private void submit(String line) {
+            CompletableFuture<String> reply;
+            try {
+                reply = dispatch(this, line);
+            } catch (RuntimeException ex) {
+                reply = CompletableFuture.completedFuture("ERR " + ex.getMessage());
+            }
+            submitReply(reply);
+        }
+
+        private void submitReply(CompletableFuture<String> reply) {
+            replies.add(reply);
+            if (!reply.isDone()) {
+                reply.whenComplete((value, error) -> loop.signal(this));
+            }
+        }
+
+        /** Moves every completed reply at the head of the queue into the output buffer. */
+        void collectReplies() {
+            while (!replies.isEmpty() && replies.peekFirst().isDone()) {
+                String text;
+                try {
+                    text = replies.pollFirst().join();
+                } catch (CompletionException ex) {
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    text = "ERR " + cause.getMessage();
+                }
+                append((text + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        private void append(byte[] bytes) {
+            if (output.remaining() < bytes.length) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(output.capacity() * 2, output.position() + bytes.length));
+                output.flip();
+                larger.put(output);
+                output = larger;
+            }
+            output.put(bytes);
+        }
+
+        void flush() throws IOException {
+            if (output.position() > 0) {
+                output.flip();
+                channel.write(output);
+                output.compact();
+            }
+            updateInterest();
+        }
+
+        /**
+         * Reads pause while the client has too many replies outstanding or too
+         * many unread bytes; they resume once the backlog drains.
+         */
+        private void updateInterest() {
+            if (closing && replies.isEmpty() && output.position() == 0) {
+                close();
+                return;
+            }
+            int ops = 0;
+            if (output.position() > 0) {
+                ops |= SelectionKey.OP_WRITE;
+            }
+            if (!closing && replies.size() < MAX_IN_FLIGHT && output.position() < OUTPUT_HIGH_WATER) {
+                ops |= SelectionKey.OP_READ;
+            }
+            key.interestOps(ops);
+        }
+
+        void close() {
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
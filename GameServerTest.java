@@ -0,0 +1,162 @@
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GameServerTest {
+
+    @Test
+    public void testPipelinedCommandsAnswerInOrder() throws Exception {
+        try (GameHost host = new GameHost(new Dictionary("words.txt"));
+             GameServer server = new GameServer(host, new InetSocketAddress("localhost", 0), 2);
+             Socket socket = new Socket("localhost", server.getPort())) {
+            OutputStream out = socket.getOutputStream();
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+
+            out.write("STATE\nNEW Ann Bob\nPASS\nZ99 WORD A\nSTATE\nBOARD\nQUIT\n".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+
+            assertTrue(in.readLine().startsWith("ERR"));
+            assertTrue(in.readLine().startsWith("OK GAME "));
+            assertTrue(in.readLine().startsWith("OK 0 Ann passes"));
+            assertTrue(in.readLine().startsWith("ERR"));
+            String state = in.readLine();
+            assertTrue(state, state.startsWith("STATE current=Bob bag=86 over=false"));
+            String board = in.readLine();
+            assertEquals(1 + Board.SIZE, board.split(" ").length);
+            assertEquals("BYE", in.readLine());
+            assertEquals(null, in.readLine());
+        }
+    }
+
+    @Test
+    public void testJoinUnknownGameLeavesConnectionUnjoined() throws Exception {
+        try (GameHost host = new GameHost(new Dictionary("words.txt"));
+             GameServer server = new GameServer(host, new InetSocketAddress("localhost", 0), 1);
+             Socket socket = new Socket("localhost", server.getPort())) {
+            OutputStream out = socket.getOutputStream();
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+
+            out.write("JOIN 424242\nSTATE\n".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            assertEquals("ERR Unknown game: 424242", in.readLine());
+            assertEquals("ERR Join or create a game first.", in.readLine());
+        }
+    }
+
+    @Test
+    public void testLinesPastTheInFlightCapWaitInTheBuffer() throws Exception {
+        int queries = 400;
+        try (GameHost host = new GameHost(new Dictionary("words.txt"));
+             GameServer server = new GameServer(host, new InetSocketAddress("localhost", 0), 1);
+             Socket socket = new Socket("localhost", server.getPort())) {
+            socket.setSoTimeout(10_000);
+            OutputStream out = socket.getOutputStream();
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            out.write("NEW Ann Bob\n".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            assertTrue(in.readLine().startsWith("OK GAME "));
+
+            // One write, several reads' worth of commands; the server must pick up the held-back ones itself.
+            StringBuilder batch = new StringBuilder();
+            for (int i = 0; i < queries; i++) {
+                batch.append("STATE\n");
+            }
+            out.write(batch.toString().getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            for (int i = 0; i < queries; i++) {
+                String line = in.readLine();
+                assertTrue("reply " + i + ": " + line, line != null && line.startsWith("STATE current=Ann"));
+            }
+        }
+    }
+
+    @Test
+    public void testSlowReaderDoesNotStallOtherClientsOnItsLoop() throws Exception {
+        int commands = 20_000;
+        try (GameHost host = new GameHost(new Dictionary("words.txt"));
+             GameServer server = new GameServer(host, new InetSocketAddress("localhost", 0), 1);
+             Socket slow = new Socket("localhost", server.getPort());
+             Socket quick = new Socket("localhost", server.getPort())) {
+            OutputStream slowOut = slow.getOutputStream();
+            slowOut.write("NEW Ann Bob\n".getBytes(StandardCharsets.UTF_8));
+            // The slow client sends far more than the socket buffers hold and reads nothing yet.
+            Thread writer = new Thread(() -> {
+                try {
+                    byte[] board = "BOARD\n".getBytes(StandardCharsets.UTF_8);
+                    for (int i = 0; i < commands; i++) {
+                        slowOut.write(board);
+                    }
+                    slowOut.flush();
+                } catch (java.io.IOException ignored) {
+                }
+            });
+            writer.setDaemon(true);
+            writer.start();
+            Thread.sleep(200);
+
+            quick.setSoTimeout(5_000);
+            OutputStream quickOut = quick.getOutputStream();
+            BufferedReader quickIn = new BufferedReader(new InputStreamReader(quick.getInputStream(), StandardCharsets.UTF_8));
+            quickOut.write("NEW Cy Di\nPASS\nSTATE\n".getBytes(StandardCharsets.UTF_8));
+            quickOut.flush();
+            assertTrue(quickIn.readLine().startsWith("OK GAME "));
+            assertTrue(quickIn.readLine().startsWith("OK 0 Cy passes"));
+            assertTrue(quickIn.readLine().startsWith("STATE current=Di"));
+
+            slow.setSoTimeout(10_000);
+            BufferedReader slowIn = new BufferedReader(new InputStreamReader(slow.getInputStream(), StandardCharsets.UTF_8));
+            assertTrue(slowIn.readLine().startsWith("OK GAME "));
+            for (int i = 0; i < commands; i++) {
+                String line = slowIn.readLine();
+                assertTrue("reply " + i + ": " + line, line != null && line.startsWith("BOARD "));
+            }
+            writer.join(5_000);
+            assertFalse(writer.isAlive());
+        }
+    }
+
+    @Test
+    public void testManyClientsShareOneLoop() throws Exception {
+        int clients = 16;
+        try (GameHost host = new GameHost(new Dictionary("words.txt"));
+             GameServer server = new GameServer(host, new InetSocketAddress("localhost", 0), 1)) {
+            List<Socket> sockets = new ArrayList<>();
+            try {
+                for (int i = 0; i < clients; i++) {
+                    Socket socket = new Socket("localhost", server.getPort());
+                    socket.setSoTimeout(5_000);
+                    sockets.add(socket);
+                    socket.getOutputStream().write(("NEW P" + i + " Q" + i + "\nPASS\nSTATE\n")
+                            .getBytes(StandardCharsets.UTF_8));
+                }
+                List<String> games = new ArrayList<>();
+                for (int i = 0; i < clients; i++) {
+                    BufferedReader in = new BufferedReader(
+                            new InputStreamReader(sockets.get(i).getInputStream(), StandardCharsets.UTF_8));
+                    String game = in.readLine();
+                    assertTrue(game.startsWith("OK GAME "));
+                    assertFalse("two clients got the same game", games.contains(game));
+                    games.add(game);
+                    assertTrue(in.readLine().startsWith("OK 0 P" + i + " passes"));
+                    assertTrue(in.readLine().startsWith("STATE current=Q" + i + " "));
+                }
+                assertEquals(clients, host.liveGames());
+            } finally {
+                for (Socket socket : sockets) {
+                    socket.close();
+                }
+            }
+        }
+    }
+}
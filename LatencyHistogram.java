@@ -0,0 +1,99 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size latency histogram in the style of HdrHistogram, safe to record
+ * into from many threads at once.
+ *
+ * Values below {@link #SUB_BUCKETS} nanoseconds get a bucket each. Every
+ * larger power-of-two range is split into 64 equal buckets. A recorded value
+ * is therefore off by less than 1/64 (about 1.6%) of itself, at any scale up
+ * to {@link Long#MAX_VALUE}. The whole range fits in under 4k counters, and
+ * recording is a shift, an add and one atomic increment, so callers can time
+ * every operation instead of sampling. Percentiles report the highest value
+ * the matching bucket could hold, as HdrHistogram does, so they never
+ * understate latency.
+ */
+public final class LatencyHistogram {
+    /** Values below this are counted exactly. */
+    public static final int SUB_BUCKETS = 128;
+
+    private static final int HALF = SUB_BUCKETS / 2;
+    private static final int SUB_BITS = Integer.numberOfTrailingZeros(SUB_BUCKETS);
+    private static final int BUCKETS = SUB_BUCKETS + (Long.SIZE - SUB_BITS) * HALF;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /** Counts one value; negative values count as 0. */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(indexOf(value));
+        total.incrementAndGet();
+        if (value > max.get()) {
+            max.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    /** @return values recorded so far. */
+    public long count() {
+        return total.get();
+    }
+
+    /** @return largest value recorded, exactly. */
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * @param fraction between 0 and 1, e.g. 0.999
+     * @return smallest value that at least {@code fraction} of the recorded
+     *         values do not exceed, rounded up to its bucket; 0 when empty
+     */
+    public long percentile(double fraction) {
+        long recorded = total.get();
+        if (recorded == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(1.0, fraction) * recorded));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestIn(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /** Adds every value counted by {@code other}. */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long count = other.counts.get(i);
+            if (count != 0) {
+                counts.addAndGet(i, count);
+            }
+        }
+        total.addAndGet(other.total.get());
+        max.accumulateAndGet(other.max.get(), Math::max);
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = Long.SIZE - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return SUB_BUCKETS + (shift - 1) * HALF + (int) (value >>> shift) - HALF;
+    }
+
+    private static long highestIn(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKETS) / HALF + 1;
+        long top = (index - SUB_BUCKETS) % HALF + HALF;
+        long highest = ((top + 1) << shift) - 1;
+        return highest < 0 ? Long.MAX_VALUE : highest;
+    }
+}
@@ -0,0 +1,357 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process load test for {@link Scrabble_Model}: how many players one JVM
+ * serves before latency degrades. Run with
+ * {@code java LoadGenerator [--think=<ms>] [--seconds=<s>] [--seats=<n>] [players...]};
+ * defaults to 100, 1k and 10k players thinking 50 ms per turn.
+ *
+ * Synthetic players sit at tables of {@code seats}, one model per table. A
+ * table runs on its own virtual thread, because only the player to move
+ * ever acts. Each turn the player thinks for the think time, give or take
+ * half, and then plays the first legal move it finds. To find one it
+ * scans the word list from a random point for words its rack can make
+ * through a random tile on the board. It checks a few of them with
+ * {@link Scrabble_Model#evaluatePlacements} and plays the first that
+ * passes. Moves are legal but not good. A player who finds nothing passes.
+ * One turn in {@link #UNDO_ONE_IN} is followed by an undo, and every
+ * {@link #SAVE_EVERY} turns the table saves to its own file. When the bag
+ * and a rack run dry, or everyone passes in a row, the table starts a new
+ * game.
+ *
+ * Every {@code playWord}, {@code undo} and {@code saveGame} call is timed
+ * into a {@link LatencyHistogram}. Each player count is one row of the
+ * throughput-versus-latency table. As the offered load grows, a knee in the
+ * percentiles shows where the JVM saturates.
+ */
+public final class LoadGenerator {
+    /** On average one turn in this many is undone. */
+    public static final int UNDO_ONE_IN = 20;
+    /** Turns between saves of one table. */
+    public static final int SAVE_EVERY = 25;
+
+    private static final int SCAN_LIMIT = 2_000;
+    private static final int CANDIDATES = 8;
+    private static final int MAX_WORD = RulesKernel.BINGO_TILES + 1;
+
+    private final Scrabble_Model.Dictionary dictionary;
+    private final BoardConfigLoader.BoardLayout layout;
+    private final String[] words;
+    private final String[][] wordsByLetter;
+
+    public LoadGenerator(Scrabble_Model.Dictionary dictionary, BoardConfigLoader.BoardLayout layout) {
+        this.dictionary = Objects.requireNonNull(dictionary, "dictionary");
+        this.layout = Objects.requireNonNull(layout, "layout");
+        List<String> usable = new ArrayList<>();
+        List<List<String>> byLetter = new ArrayList<>();
+        for (int i = 0; i < TileCounts.LETTERS - 1; i++) {
+            byLetter.add(new ArrayList<>());
+        }
+        for (String word : dictionary.words()) {
+            if (word.length() < 2 || word.length() > MAX_WORD || !word.chars().allMatch(ch -> ch >= 'A' && ch <= 'Z')) {
+                continue;
+            }
+            usable.add(word);
+            boolean[] seen = new boolean[byLetter.size()];
+            for (int i = 0; i < word.length(); i++) {
+                int letter = word.charAt(i) - 'A';
+                if (!seen[letter]) {
+                    seen[letter] = true;
+                    byLetter.get(letter).add(word);
+                }
+            }
+        }
+        this.words = usable.toArray(new String[0]);
+        this.wordsByLetter = new String[byLetter.size()][];
+        for (int i = 0; i < wordsByLetter.length; i++) {
+            wordsByLetter[i] = byLetter.get(i).toArray(new String[0]);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Duration think = Duration.ofMillis(50);
+        Duration length = Duration.ofSeconds(10);
+        int seats = 2;
+        List<Integer> players = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--think=")) {
+                think = Duration.ofMillis(Long.parseLong(arg.substring(8)));
+            } else if (arg.startsWith("--seconds=")) {
+                length = Duration.ofSeconds(Long.parseLong(arg.substring(10)));
+            } else if (arg.startsWith("--seats=")) {
+                seats = Integer.parseInt(arg.substring(8));
+            } else {
+                players.add(Integer.parseInt(arg));
+            }
+        }
+        if (players.isEmpty()) {
+            players.add(100);
+            players.add(1_000);
+            players.add(10_000);
+        }
+        LoadGenerator generator = new LoadGenerator(new Scrabble_Model.Dictionary("words.txt"),
+                BoardConfigLoader.loadLibrary(Paths.get("boards")).require("Classic"));
+        generator.run(100, seats, Duration.ZERO, Duration.ofSeconds(2));
+        System.out.printf("think %d ms, %d seats per table, %d s per row%n", think.toMillis(), seats, length.getSeconds());
+        System.out.println(Stage.HEADER);
+        for (int count : players) {
+            System.out.println(generator.run(count, seats, think, length).format());
+        }
+    }
+
+    /**
+     * Runs {@code players} synthetic players for {@code length} and reports
+     * what they measured.
+     *
+     * @param seats players per table, 1-4
+     * @param think mean pause before each turn; zero runs the tables flat out
+     */
+    public Stage run(int players, int seats, Duration think, Duration length) throws InterruptedException {
+        if (seats < 1 || seats > 4 || players < seats) {
+            throw new IllegalArgumentException("need 1-4 seats and at least one full table");
+        }
+        Stage stage = new Stage(players);
+        long thinkNanos = think.toNanos();
+        long start = System.nanoTime();
+        long stopAt = start + length.toNanos();
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            for (int t = 0; t < players / seats; t++) {
+                long seed = GameRandom.seedFor(start, t);
+                int table = seats;
+                executor.execute(() -> new Table(table, seed, stage).run(thinkNanos, stopAt));
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(length.toMillis() + TimeUnit.MINUTES.toMillis(1), TimeUnit.MILLISECONDS);
+        }
+        stage.nanos = System.nanoTime() - start;
+        return stage;
+    }
+
+    /** Measurements of one run. */
+    public static final class Stage {
+        static final String HEADER = String.format("%8s %10s %9s %9s %9s %9s %9s %9s %7s",
+                "players", "ops/sec", "play p50", "play p99", "play p999", "play max", "undo p99", "save p99", "games");
+
+        private final int players;
+        private final LatencyHistogram play = new LatencyHistogram();
+        private final LatencyHistogram undo = new LatencyHistogram();
+        private final LatencyHistogram save = new LatencyHistogram();
+        private final AtomicLong passes = new AtomicLong();
+        private final AtomicLong games = new AtomicLong();
+        private long nanos;
+
+        Stage(int players) {
+            this.players = players;
+        }
+
+        /** @return latencies of {@code playWord}, in nanoseconds. */
+        public LatencyHistogram play() {
+            return play;
+        }
+
+        /** @return latencies of {@code undo}, in nanoseconds. */
+        public LatencyHistogram undo() {
+            return undo;
+        }
+
+        /** @return latencies of {@code saveGame}, in nanoseconds. */
+        public LatencyHistogram save() {
+            return save;
+        }
+
+        /** @return turns on which the player found no move. */
+        public long passes() {
+            return passes.get();
+        }
+
+        /** @return games finished and restarted during the run. */
+        public long games() {
+            return games.get();
+        }
+
+        /** @return timed operations per second over the whole run. */
+        public double opsPerSecond() {
+            long ops = play.count() + undo.count() + save.count();
+            return nanos > 0 ? ops / (nanos / 1e9) : 0;
+        }
+
+        /** @return one row of the throughput-versus-latency table, latencies in microseconds. */
+        public String format() {
+            return String.format("%8d %10.0f %9.1f %9.1f %9.1f %9.1f %9.1f %9.1f %7d",
+                    players, opsPerSecond(),
+                    play.percentile(0.50) / 1e3, play.percentile(0.99) / 1e3,
+                    play.percentile(0.999) / 1e3, play.max() / 1e3,
+                    undo.percentile(0.99) / 1e3, save.percentile(0.99) / 1e3, games());
+        }
+    }
+
+    /** One model and the players seated at it; only touched by its own thread. */
+    private final class Table {
+        private final int seats;
+        private final GameRandom random;
+        private final Stage stage;
+        private final int[] counts = new int[TileCounts.LETTERS];
+        private final List<Scrabble_Model.Placement> candidates = new ArrayList<>(CANDIDATES);
+        private Scrabble_Model model;
+        private int passesInRow;
+        private long turns;
+
+        Table(int seats, long seed, Stage stage) {
+            this.seats = seats;
+            this.random = new GameRandom(seed);
+            this.stage = stage;
+            newGame();
+        }
+
+        void run(long thinkNanos, long stopAt) {
+            File file;
+            try {
+                file = File.createTempFile("scrabble-load", ".sav");
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            try {
+                while (System.nanoTime() < stopAt) {
+                    if (thinkNanos > 0) {
+                        long pause = thinkNanos / 2 + (long) (random.nextInt(1 << 20) / (double) (1 << 20) * thinkNanos);
+                        TimeUnit.NANOSECONDS.sleep(Math.min(pause, Math.max(0, stopAt - System.nanoTime())));
+                    }
+                    turn();
+                    if (random.nextInt(UNDO_ONE_IN) == 0 && model.canUndo()) {
+                        long begin = System.nanoTime();
+                        model.undo();
+                        stage.undo.record(System.nanoTime() - begin);
+                    }
+                    if (++turns % SAVE_EVERY == 0) {
+                        long begin = System.nanoTime();
+                        model.saveGame(file);
+                        stage.save.record(System.nanoTime() - begin);
+                    }
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            } finally {
+                file.delete();
+            }
+        }
+
+        private void turn() {
+            Scrabble_Model.Placement move = findMove();
+            if (move == null) {
+                stage.passes.incrementAndGet();
+                model.advanceTurn();
+                if (++passesInRow >= seats) {
+                    newGame();
+                }
+                return;
+            }
+            Scrabble_Model.Player mover = model.getCurrentPlayer();
+            long begin = System.nanoTime();
+            Scrabble_Model.MoveResult result = model.playWord(move);
+            stage.play.record(System.nanoTime() - begin);
+            passesInRow = 0;
+            if (result.isSuccess() && mover.handSize() == 0 && model.tileBag.isEmpty()) {
+                newGame();
+            }
+        }
+
+        private void newGame() {
+            if (model != null) {
+                stage.games.incrementAndGet();
+            }
+            model = new Scrabble_Model(layout, dictionary, random.nextLong());
+            model.setupPlayers(seats);
+            passesInRow = 0;
+        }
+
+        /** @return a move that passes the rules, or null when the scan found none. */
+        private Scrabble_Model.Placement findMove() {
+            Rack rack = model.getCurrentPlayer().getRack();
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = rack.count(i);
+            }
+            Scrabble_Model.Board board = model.board;
+            int size = board.size();
+            int tiles = 0;
+            int anchorRow = size / 2;
+            int anchorCol = size / 2;
+            // Reservoir-sample one occupied square as the anchor.
+            for (int r = 0; r < size; r++) {
+                for (int c = 0; c < size; c++) {
+                    if (board.getCell(r, c) != Scrabble_Model.Board.EMPTY && random.nextInt(++tiles) == 0) {
+                        anchorRow = r;
+                        anchorCol = c;
+                    }
+                }
+            }
+            char anchor = tiles == 0 ? 0 : board.getCell(anchorRow, anchorCol);
+            String[] pool = tiles == 0 ? words : wordsByLetter[anchor - 'A'];
+            if (pool.length == 0) {
+                return null;
+            }
+            candidates.clear();
+            int from = random.nextInt(pool.length);
+            for (int n = 0; n < Math.min(SCAN_LIMIT, pool.length) && candidates.size() < CANDIDATES; n++) {
+                String word = pool[(from + n) % pool.length];
+                int through = tiles == 0 ? random.nextInt(word.length()) : word.indexOf(anchor);
+                if (!canMake(word, through, tiles > 0)) {
+                    continue;
+                }
+                boolean across = tiles == 0 || random.nextInt(2) == 0;
+                int row = across ? anchorRow : anchorRow - through;
+                int col = across ? anchorCol - through : anchorCol;
+                if (row < 0 || col < 0 || (across ? col : row) + word.length() > size) {
+                    continue;
+                }
+                candidates.add(new Scrabble_Model.Placement(row, col,
+                        across ? Scrabble_Model.Placement.Direction.ACROSS : Scrabble_Model.Placement.Direction.DOWN, word));
+            }
+            if (candidates.isEmpty()) {
+                return null;
+            }
+            MoveBatch batch = model.evaluatePlacements(candidates, rack);
+            for (int i = 0; i < candidates.size(); i++) {
+                if (batch.status(i) == RulesKernel.OK) {
+                    return candidates.get(i);
+                }
+            }
+            return null;
+        }
+
+        /** @return true when the rack, with blanks, holds every letter of {@code word} except the board's. */
+        private boolean canMake(String word, int through, boolean skipThrough) {
+            int blanks = counts[TileCounts.LETTERS - 1];
+            int missing = 0;
+            for (int i = 0; i < word.length(); i++) {
+                if (skipThrough && i == through) {
+                    continue;
+                }
+                int letter = word.charAt(i) - 'A';
+                if (--counts[letter] < 0) {
+                    missing++;
+                }
+            }
+            for (int i = 0; i < word.length(); i++) {
+                if (!skipThrough || i != through) {
+                    counts[word.charAt(i) - 'A']++;
+                }
+            }
+            return missing <= blanks;
+        }
+    }
+}
@@ -61,6 +61,27 @@ public class Model_Test {
         assertEquals(true, bag.isEmpty());
     }
 
+    @Test
+    public void testTileBagCopyAndRestoreRepeatDraws() {
+        Scrabble_Model.TileBag bag = new Scrabble_Model.TileBag(11L);
+        int[] counts = new int[TileCounts.LETTERS];
+        bag.copyCounts(counts);
+        long state = bag.getRandomState();
+        Scrabble_Model.TileBag copy = bag.copy();
+
+        StringBuilder first = new StringBuilder();
+        StringBuilder second = new StringBuilder();
+        while (!bag.isEmpty()) {
+            first.append(bag.dealTile().getLetter()).append(' ');
+            second.append(copy.dealTile().getLetter()).append(' ');
+        }
+        assertEquals(first.toString(), second.toString());
+
+        bag.restore(counts, state);
+        assertEquals(first.toString().split(" ").length, bag.size());
+        assertEquals(first.toString().split(" ")[0], bag.dealTile().getLetter().toString());
+    }
+
     @Test
     public void testPlayer() {
         Scrabble_Model.Player player = new Scrabble_Model.Player("Player1");
@@ -76,6 +97,229 @@ public class Model_Test {
         assertEquals(10, player.getScore());
     }
 
+    @Test
+    public void testRackPackedCounts() {
+        Scrabble_Model.Player player = new Scrabble_Model.Player("Player1");
+        player.setRack(java.util.Arrays.asList(
+                Scrabble_Model.Letter.Z, Scrabble_Model.Letter.A, Scrabble_Model.Letter.E,
+                Scrabble_Model.Letter.E, Scrabble_Model.Letter.BLANK));
+        Rack rack = player.getRack();
+        assertEquals(5, rack.size());
+        assertEquals(2, rack.count(Scrabble_Model.Letter.E.ordinal()));
+        assertEquals(true, rack.canForm("ZEE"));
+        assertEquals(true, rack.canForm("daze"));
+        assertEquals(false, rack.canForm("ZEBRA"));
+        assertEquals(Scrabble_Model.Letter.A, player.getHand().get(0).getLetter());
+
+        Rack same = new Rack();
+        same.set(rack.lowBits(), rack.highBits());
+        assertEquals(rack.signature(), same.signature());
+        assertEquals(Scrabble_Model.Letter.Z, player.takeTile(Scrabble_Model.Letter.Z).getLetter());
+        assertEquals(false, rack.signature() == same.signature());
+        assertEquals(4, player.getHand().size());
+    }
+
+    @Test
+    public void testRackSignatureSeparatesTheLastSlot() {
+        Rack last = new Rack();
+        last.add(Rack.SLOTS - 1);
+        Rack both = new Rack();
+        both.add(0);
+        both.add(Rack.SLOTS - 1);
+        assertEquals(false, last.signature() == both.signature());
+
+        Rack full = new Rack();
+        Rack other = new Rack();
+        for (int i = 0; i < 10; i++) {
+            full.add(Rack.SLOTS - 1 - i);
+            other.add(Rack.SLOTS - 1 - i);
+        }
+        assertEquals(full.signature(), other.signature());
+        other.take(Rack.SLOTS - 10);
+        other.add(0);
+        assertEquals(false, full.signature() == other.signature());
+    }
+
+    @Test
+    public void testRulesKernelScoresBlanksAndPremiums() {
+        char[][] grid = new char[Scrabble_Model.Board.SIZE][Scrabble_Model.Board.SIZE];
+        boolean[][] blanks = new boolean[Scrabble_Model.Board.SIZE][Scrabble_Model.Board.SIZE];
+        PremiumSquare[][] layout = new PremiumSquare[Scrabble_Model.Board.SIZE][Scrabble_Model.Board.SIZE];
+        for (PremiumSquare[] row : layout) {
+            java.util.Arrays.fill(row, PremiumSquare.NORMAL);
+        }
+        layout[7][7] = PremiumSquare.DOUBLE_WORD;
+        layout[7][8] = PremiumSquare.TRIPLE_LETTER;
+        Rack rack = new Rack();
+        rack.add(Scrabble_Model.Letter.C.ordinal());
+        rack.add(Scrabble_Model.Letter.T.ordinal());
+        rack.add(Scrabble_Model.Letter.BLANK.ordinal());
+
+        RulesKernel rules = new RulesKernel(Scrabble_Model.Board.SIZE);
+        assertEquals(RulesKernel.OK, rules.plan(grid, 7, 7, true, "CAT", rack));
+        assertEquals(true, rules.isBlankAt(1));
+        // C on the double word, blank A on the triple letter, T plain: (3 + 0 + 1) * 2.
+        assertEquals(8, rules.score(blanks, CompiledLayout.compile("Kernel test", layout)));
+        rules.consume(rack);
+        rules.apply(grid, blanks, "CAT");
+        assertEquals(0, rack.size());
+        assertEquals('A', grid[7][8]);
+        assertEquals(true, blanks[7][8]);
+
+        assertEquals(RulesKernel.CONFLICT, rules.plan(grid, 7, 7, true, "DOG", rack));
+        assertEquals(RulesKernel.MISSING_TILES, rules.plan(grid, 8, 7, true, "DOG", rack));
+        assertEquals(RulesKernel.OUT_OF_BOUNDS, rules.plan(grid, 7, 13, true, "CAT", rack));
+    }
+
+    @Test
+    public void testRulesKernelPutsBlankOnCheapestSquare() {
+        int size = Scrabble_Model.Board.SIZE;
+        PremiumSquare[][] layout = new PremiumSquare[size][size];
+        for (PremiumSquare[] row : layout) {
+            java.util.Arrays.fill(row, PremiumSquare.NORMAL);
+        }
+        layout[7][9] = PremiumSquare.TRIPLE_LETTER;
+        Rack rack = new Rack();
+        rack.add(Scrabble_Model.Letter.Z.ordinal());
+        rack.add(Scrabble_Model.Letter.O.ordinal());
+        rack.add(Scrabble_Model.Letter.BLANK.ordinal());
+
+        RulesKernel rules = new RulesKernel(size);
+        assertEquals(RulesKernel.OK, rules.plan(new char[size][size], 7, 7, true, "ZOZ", rack));
+        // Natural Z on the triple letter, blank Z on the plain square: 0 + 1 + 30.
+        assertEquals(31, rules.score(new boolean[size][size], CompiledLayout.compile("Blank test", layout)));
+        assertEquals(true, rules.isBlankAt(0));
+        assertEquals(false, rules.isBlankAt(2));
+    }
+
+    @Test
+    public void testAlphabetFromConfig() throws Exception {
+        Alphabet english = Alphabet.english();
+        assertEquals(26, english.blankIndex());
+        assertEquals(Scrabble_Model.Letter.Q.ordinal(), english.indexOf('q'));
+        assertEquals(-1, english.indexOf('\u00d1'));
+        assertEquals(10, english.points(english.indexOf('Z')));
+        assertEquals(40, new Scrabble_Model.TileBag(1L).size());
+
+        java.nio.file.Path file = java.nio.file.Files.createTempFile("alphabet", ".xml");
+        java.nio.file.Files.write(file, java.util.Arrays.asList(
+                "<alphabet name=\"Mini\">",
+                "  <letter char=\"A\" points=\"1\"/>",
+                "  <letter char=\"\u00d1\" points=\"8\"/>",
+                "  <blank points=\"0\"/>",
+                "  <distribution name=\"Tiny\" blanks=\"1\">",
+                "    <tile letter=\"\u00f1\" count=\"2\"/>",
+                "  </distribution>",
+                "</alphabet>"), java.nio.charset.StandardCharsets.UTF_8);
+        Alphabet mini = Alphabet.load(file);
+        java.nio.file.Files.delete(file);
+        assertEquals(1, mini.indexOf('\u00f1'));
+        assertEquals(2, mini.blankIndex());
+        assertEquals("[0, 2, 1]", java.util.Arrays.toString(mini.distribution("Tiny")));
+
+        Rack rack = new Rack();
+        rack.add(1);
+        rack.add(mini.blankIndex());
+        assertEquals(true, rack.canForm("\u00d1a", mini));
+        assertEquals(false, rack.canForm("AA", mini));
+        RulesKernel rules = new RulesKernel(5, mini);
+        assertEquals(RulesKernel.OK, rules.plan(new char[5][5], 2, 1, true, "\u00d1A", rack));
+    }
+
+    @Test
+    public void testEnglishAlphabetMustMatchLetterValues() throws Exception {
+        java.util.List<String> lines = new java.util.ArrayList<>();
+        lines.add("<alphabet name=\"Off by one\">");
+        for (Letter letter : Letter.values()) {
+            if (letter != Letter.BLANK) {
+                int points = letter == Letter.Q ? 9 : letter.getPoints();
+                lines.add("  <letter char=\"" + letter + "\" points=\"" + points + "\"/>");
+            }
+        }
+        lines.add("  <blank points=\"0\"/>");
+        lines.add("</alphabet>");
+        java.nio.file.Path file = java.nio.file.Files.createTempFile("alphabet", ".xml");
+        java.nio.file.Files.write(file, lines, java.nio.charset.StandardCharsets.UTF_8);
+        Alphabet offByOne = Alphabet.load(file);
+        java.nio.file.Files.delete(file);
+
+        Alphabet.requireEnglish(Alphabet.english(), "bundled");
+        boolean rejected = false;
+        try {
+            Alphabet.requireEnglish(offByOne, "test");
+        } catch (IllegalStateException expected) {
+            rejected = expected.getMessage().contains("Q 9 points");
+        }
+        assertEquals(true, rejected);
+    }
+
+    @Test
+    public void testDrawOddsAreHypergeometric() {
+        int[] pool = new int[Alphabet.english().tileKinds()];
+        pool[Scrabble_Model.Letter.A.ordinal()] = 2;
+        pool[Scrabble_Model.Letter.B.ordinal()] = 1;
+        pool[Scrabble_Model.Letter.C.ordinal()] = 3;
+        int[] ab = new int[pool.length];
+        ab[Scrabble_Model.Letter.A.ordinal()] = 1;
+        ab[Scrabble_Model.Letter.B.ordinal()] = 1;
+        int[] a = new int[pool.length];
+        a[Scrabble_Model.Letter.A.ordinal()] = 1;
+        int[] aa = new int[pool.length];
+        aa[Scrabble_Model.Letter.A.ordinal()] = 2;
+        int[] b = new int[pool.length];
+        b[Scrabble_Model.Letter.B.ordinal()] = 1;
+
+        DrawOdds odds = new DrawOdds();
+        assertEquals(15.0, DrawOdds.choose(6, 2), 0);
+        assertEquals(2.0 / 15, odds.exactly(pool, 2, ab), 1e-12);
+        assertEquals(9.0 / 15, odds.containsAll(pool, 2, a), 1e-12);
+        // AA takes both draws, so it never overlaps a draw holding the B.
+        assertEquals(6.0 / 15, odds.containsAny(pool, 2, aa, b), 1e-12);
+        pool[Scrabble_Model.Letter.C.ordinal()] = 0;
+        assertEquals(1.0, odds.containsAny(pool, 2, aa, b), 1e-12);
+
+        int[] lettersOnly = java.util.Arrays.copyOf(pool, Alphabet.english().blankIndex());
+        int[] aAndBlank = new int[pool.length];
+        aAndBlank[Scrabble_Model.Letter.A.ordinal()] = 1;
+        aAndBlank[Scrabble_Model.Letter.BLANK.ordinal()] = 1;
+        int[] blank = new int[pool.length];
+        blank[Scrabble_Model.Letter.BLANK.ordinal()] = 1;
+        assertEquals(0.0, odds.exactly(lettersOnly, 1, aAndBlank), 0);
+        assertEquals(0.0, odds.exactly(lettersOnly, 2, aAndBlank), 0);
+        assertEquals(0.0, odds.containsAny(lettersOnly, 2, blank), 0);
+        assertEquals(odds.containsAll(lettersOnly, 2, a), odds.containsAny(lettersOnly, 2, blank, a), 1e-12);
+    }
+
+    @Test
+    public void testDrawOddsOverManyLetters() {
+        Alphabet english = Alphabet.english();
+        int[] pool = english.distribution("Standard");
+        int[][] consonants = new int[21][];
+        int[] vowelsAndBlanks = new int[pool.length];
+        int n = 0;
+        for (int i = 0; i < english.tileKinds(); i++) {
+            if (i != english.blankIndex() && "AEIOU".indexOf(english.letterAt(i)) < 0) {
+                consonants[n] = new int[pool.length];
+                consonants[n++][i] = 1;
+            } else {
+                vowelsAndBlanks[i] = pool[i];
+            }
+        }
+        int quiet = java.util.Arrays.stream(vowelsAndBlanks).sum();
+        DrawOdds odds = new DrawOdds();
+        assertEquals(1 - DrawOdds.choose(quiet, 7) / DrawOdds.choose(100, 7),
+                odds.containsAny(pool, 7, consonants), 1e-12);
+
+        int[] spread = new int[pool.length];
+        int ways = 1;
+        for (char letter : "BCDFGHK".toCharArray()) {
+            spread[english.indexOf(letter)] = 1;
+            ways *= pool[english.indexOf(letter)];
+        }
+        assertEquals(ways / DrawOdds.choose(100, 7), odds.containsAll(pool, 7, spread), 1e-15);
+        assertEquals(odds.exactly(pool, 7, spread), odds.containsAll(pool, 7, spread), 1e-15);
+    }
+
     @Test
     public void testTile() {
         Scrabble_Model.Tile tile = new Scrabble_Model.Tile(Scrabble_Model.Letter.G);
@@ -0,0 +1,51 @@
+/**
+ * Outcome of checking many candidate placements against one position, as
+ * returned by {@link Scrabble_Model#evaluatePlacements} and
+ * {@link Game#evaluatePlacements}. Results are stored in two primitive arrays
+ * in the order the placements were given.
+ */
+public final class MoveBatch {
+    private final int[] status;
+    private final int[] scores;
+
+    MoveBatch(int size) {
+        this.status = new int[size];
+        this.scores = new int[size];
+    }
+
+    void record(int index, int outcome, int score) {
+        status[index] = outcome;
+        scores[index] = score;
+    }
+
+    /** @return number of placements evaluated. */
+    public int size() {
+        return status.length;
+    }
+
+    /** @return true when placement {@code index} could be played. */
+    public boolean isValid(int index) {
+        return status[index] == RulesKernel.OK;
+    }
+
+    /** @return {@link RulesKernel#OK} or the failure code for placement {@code index}. */
+    public int status(int index) {
+        return status[index];
+    }
+
+    /** @return points placement {@code index} would score, or 0 when it is invalid. */
+    public int score(int index) {
+        return scores[index];
+    }
+
+    /** @return index of the highest scoring valid placement, or -1 when none is valid. */
+    public int best() {
+        int best = -1;
+        for (int i = 0; i < status.length; i++) {
+            if (status[i] == RulesKernel.OK && (best < 0 || scores[i] > scores[best])) {
+                best = i;
+            }
+        }
+        return best;
+    }
+}
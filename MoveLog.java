@@ -0,0 +1,323 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of moves shared by many games, written with group commit.
+ *
+ * Games hand {@link #append} a small record and get a future back. One writer
+ * thread collects every record that arrives during a commit window, writes the
+ * whole batch in one sequential append and then forces the file once. After
+ * that it completes the futures of every record in the batch. A disk that
+ * needs a few milliseconds per force therefore still takes thousands of
+ * records per force, and callers never wait on each other's force.
+ *
+ * The commit window trades latency for batch size. With a zero window the
+ * writer starts the next batch as soon as the previous force returns, so
+ * everything that queued up during a force goes into the next one. Without
+ * forcing, futures complete once the batch has reached the operating system.
+ * That survives a crash of the JVM but not of the machine.
+ *
+ * Each record stores its length, a CRC32, the game id and the entry text.
+ * {@link #read} stops at the first torn or corrupt record, and opening a log
+ * cuts such a tail off before appending. A crash during a write therefore
+ * loses only records whose futures had not completed.
+ */
+public final class MoveLog implements AutoCloseable {
+    /** Records written in one batch before the window is cut short. */
+    public static final int DEFAULT_MAX_BATCH = 4096;
+
+    private static final int HEADER_BYTES = 4 + 4 + 8;
+    private static final int MAX_ENTRY_BYTES = 1 << 16;
+    private static final Pending CLOSE = new Pending(0, new byte[0]);
+
+    private final FileChannel channel;
+    private final long windowNanos;
+    private final int maxBatch;
+    private final boolean force;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+    private volatile boolean closed;
+    private volatile IOException failure;
+    private volatile long batches;
+    private volatile long records;
+
+    /**
+     * Opens a log that forces after every batch, with no extra commit window.
+     */
+    public MoveLog(Path file, ThreadFactory threadFactory) throws IOException {
+        this(file, threadFactory, Duration.ZERO, DEFAULT_MAX_BATCH, true);
+    }
+
+    /**
+     * @param commitWindow how long the writer waits for more records after the
+     *                     first one of a batch; longer windows mean larger
+     *                     batches and fewer forces at the cost of latency
+     * @param maxBatch records after which a batch is written without waiting
+     *                 for the rest of the window
+     * @param force whether a batch is forced to the device before its futures
+     *              complete
+     */
+    public MoveLog(Path file, ThreadFactory threadFactory, Duration commitWindow, int maxBatch, boolean force)
+            throws IOException {
+        if (commitWindow.isNegative() || maxBatch < 1) {
+            throw new IllegalArgumentException("commit window must not be negative and batches must hold a record");
+        }
+        this.windowNanos = commitWindow.toNanos();
+        this.maxBatch = maxBatch;
+        this.force = force;
+        long valid = Files.exists(file) ? scan(file, (id, entry) -> { }) : 0;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.truncate(valid);
+        channel.position(valid);
+        this.writer = threadFactory.newThread(this::run);
+        writer.start();
+    }
+
+    /**
+     * Queues one record.
+     *
+     * @param gameId game the record belongs to
+     * @param entry record text, at most 64 KiB once encoded as UTF-8
+     * @return future completed once the record is durable, or failed when the
+     *         log could not write it or was closed while it was queued
+     * @throws IllegalStateException when the log is closed
+     */
+    public CompletableFuture<Void> append(long gameId, String entry) {
+        byte[] bytes = Objects.requireNonNull(entry, "entry").getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_ENTRY_BYTES) {
+            throw new IllegalArgumentException("Log entry too long: " + bytes.length + " bytes.");
+        }
+        if (closed) {
+            throw new IllegalStateException("Move log is closed.");
+        }
+        Pending pending = new Pending(gameId, bytes);
+        IOException broken = failure;
+        if (broken != null) {
+            pending.future.completeExceptionally(new UncheckedIOException(broken));
+        } else {
+            queue.add(pending);
+            // close() may have drained the queue between the check above and the add.
+            if (closed && queue.remove(pending)) {
+                pending.future.completeExceptionally(new IllegalStateException("Move log is closed."));
+            }
+        }
+        return pending.future;
+    }
+
+    /** @return batches written so far; each cost one write and at most one force. */
+    public long batches() {
+        return batches;
+    }
+
+    /** @return records written so far. */
+    public long records() {
+        return records;
+    }
+
+    /**
+     * Writes every record queued before the call, then stops the writer and
+     * closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        queue.add(CLOSE);
+        boolean interrupted = false;
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            }
+        }
+        Pending late;
+        while ((late = queue.poll()) != null) {
+            late.future.completeExceptionally(new IllegalStateException("Move log is closed."));
+        }
+        channel.close();
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Reads every intact record of a log, oldest first, stopping at the first
+     * torn or corrupt one.
+     *
+     * @return number of records read
+     */
+    public static int read(Path file, BiConsumer<Long, String> records) throws IOException {
+        int[] count = new int[1];
+        scan(file, (id, entry) -> {
+            count[0]++;
+            records.accept(id, entry);
+        });
+        return count[0];
+    }
+
+    /** @return length of the intact prefix of the log, in bytes. */
+    private static long scan(Path file, BiConsumer<Long, String> records) throws IOException {
+        CRC32 check = new CRC32();
+        byte[] idBytes = new byte[8];
+        long valid = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            while (true) {
+                int length;
+                int expected;
+                byte[] entry;
+                try {
+                    length = in.readInt();
+                    if (length < 0 || length > MAX_ENTRY_BYTES) {
+                        return valid;
+                    }
+                    expected = in.readInt();
+                    in.readFully(idBytes);
+                    entry = new byte[length];
+                    in.readFully(entry);
+                } catch (EOFException torn) {
+                    return valid;
+                }
+                check.reset();
+                check.update(idBytes);
+                check.update(entry);
+                if ((int) check.getValue() != expected) {
+                    return valid;
+                }
+                records.accept(ByteBuffer.wrap(idBytes).getLong(), new String(entry, StandardCharsets.UTF_8));
+                valid += HEADER_BYTES + length;
+            }
+        }
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>();
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                stopping = collect(batch);
+            } catch (InterruptedException ex) {
+                // Only close stops the writer; keep draining.
+                continue;
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Waits for a first record, then gathers more until the window closes or
+     * the batch is full.
+     *
+     * @return true when {@link #close} was requested
+     */
+    private boolean collect(List<Pending> batch) throws InterruptedException {
+        Pending first = queue.take();
+        if (first == CLOSE) {
+            return true;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + windowNanos;
+        while (batch.size() < maxBatch) {
+            Pending next = queue.poll();
+            if (next == null) {
+                long wait = deadline - System.nanoTime();
+                if (wait <= 0 || (next = queue.poll(wait, TimeUnit.NANOSECONDS)) == null) {
+                    return false;
+                }
+            }
+            if (next == CLOSE) {
+                return true;
+            }
+            batch.add(next);
+        }
+        return false;
+    }
+
+    private void write(List<Pending> batch) {
+        try {
+            if (failure != null) {
+                throw failure;
+            }
+            buffer.clear();
+            for (Pending pending : batch) {
+                encode(pending);
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (force) {
+                channel.force(false);
+            }
+        } catch (IOException ex) {
+            // The file may now end in a partial batch; refuse everything after it.
+            failure = ex;
+            for (Pending pending : batch) {
+                pending.future.completeExceptionally(new UncheckedIOException(ex));
+            }
+            return;
+        }
+        batches++;
+        records += batch.size();
+        for (Pending pending : batch) {
+            pending.future.complete(null);
+        }
+    }
+
+    private void encode(Pending pending) {
+        int length = HEADER_BYTES + pending.entry.length;
+        if (buffer.remaining() < length) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + length));
+            buffer.flip();
+            larger.put(buffer);
+            buffer = larger;
+        }
+        int start = buffer.position();
+        buffer.putInt(pending.entry.length);
+        buffer.putInt(0);
+        buffer.putLong(pending.gameId);
+        buffer.put(pending.entry);
+        crc.reset();
+        crc.update(buffer.array(), start + 8, 8 + pending.entry.length);
+        buffer.putInt(start + 4, (int) crc.getValue());
+    }
+
+    /** A record waiting for its batch. */
+    private static final class Pending {
+        private final long gameId;
+        private final byte[] entry;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        Pending(long gameId, byte[] entry) {
+            this.gameId = gameId;
+            this.entry = entry;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/**
+ * Parses moves in {@link Game#playTurn} notation, e.g. {@code "H8 HELLO A"},
+ * without allocating.
+ *
+ * The tokenizer walks the characters once, folds case as it compares, and
+ * keeps the results in fields: row, column, direction and the bounds of the
+ * word within the input. Only {@link #word} builds a string, because the
+ * dictionary needs one. A tokenizer is reused across moves and is not
+ * thread-safe.
+ */
+public final class NotationTokenizer {
+    /** Notation parsed. */
+    public static final int OK = 0;
+    /** No notation given. */
+    public static final int MISSING = 1;
+    /** Not two or three whitespace-separated tokens. */
+    public static final int TOKEN_COUNT = 2;
+    /** Coordinate shorter than a row letter and a column. */
+    public static final int COORDINATE = 3;
+    /** Row letter outside the board. */
+    public static final int ROW = 4;
+    /** Column is not a number. */
+    public static final int COLUMN_NOT_NUMERIC = 5;
+    /** Column outside the board. */
+    public static final int COLUMN_RANGE = 6;
+    /** Direction token does not start with A or D. */
+    public static final int DIRECTION = 7;
+
+    private static final int MAX_TOKENS = 3;
+    private final int[] starts = new int[MAX_TOKENS + 1];
+    private final int[] ends = new int[MAX_TOKENS + 1];
+    private int row;
+    private int col;
+    private boolean across;
+
+    /**
+     * @param size board size the coordinate must fall within
+     * @return {@link #OK} or one of the failure codes
+     */
+    public int parse(CharSequence text, int size) {
+        if (text == null) {
+            return MISSING;
+        }
+        int tokens = split(text);
+        if (tokens < 2 || tokens > MAX_TOKENS) {
+            return TOKEN_COUNT;
+        }
+        if (ends[0] - starts[0] < 2) {
+            return COORDINATE;
+        }
+        char rowChar = Character.toUpperCase(text.charAt(starts[0]));
+        if (rowChar < 'A' || rowChar > 'A' + size - 1) {
+            return ROW;
+        }
+        int column = 0;
+        for (int i = starts[0] + 1; i < ends[0]; i++) {
+            char ch = text.charAt(i);
+            if (ch < '0' || ch > '9') {
+                return COLUMN_NOT_NUMERIC;
+            }
+            column = Math.min(column * 10 + (ch - '0'), Integer.MAX_VALUE / 10);
+        }
+        if (column < 1 || column > size) {
+            return COLUMN_RANGE;
+        }
+        boolean horizontal = true;
+        if (tokens == MAX_TOKENS) {
+            char dir = Character.toUpperCase(text.charAt(starts[2]));
+            if (dir == 'D') {
+                horizontal = false;
+            } else if (dir != 'A') {
+                return DIRECTION;
+            }
+        }
+        this.row = rowChar - 'A';
+        this.col = column - 1;
+        this.across = horizontal;
+        return OK;
+    }
+
+    /** @return true when {@code text} is {@code PASS} in any case, ignoring surrounding whitespace. */
+    public static boolean isPass(CharSequence text) {
+        if (text == null) {
+            return false;
+        }
+        int start = 0;
+        int end = text.length();
+        while (start < end && Character.isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        if (end - start != 4) {
+            return false;
+        }
+        for (int i = 0; i < 4; i++) {
+            if (Character.toUpperCase(text.charAt(start + i)) != "PASS".charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** @return the message shown to players for a failure code. */
+    public static String describe(int status, int size) {
+        switch (status) {
+            case MISSING:
+                return "Notation required.";
+            case TOKEN_COUNT:
+                return "Notation must be '<coord> <word> [A|D]'.";
+            case COORDINATE:
+                return "Coordinate must resemble 'H8'.";
+            case ROW:
+                return "Row must fall between A and " + (char) ('A' + size - 1) + ".";
+            case COLUMN_NOT_NUMERIC:
+                return "Column must be numeric.";
+            case COLUMN_RANGE:
+                return "Column must fall between 1 and " + size + ".";
+            case DIRECTION:
+                return "Direction must be A or D.";
+            default:
+                return "Invalid notation.";
+        }
+    }
+
+    /** @return zero-based row of the last parsed move. */
+    public int row() {
+        return row;
+    }
+
+    /** @return zero-based column of the last parsed move. */
+    public int col() {
+        return col;
+    }
+
+    /** @return true when the last parsed move runs across. */
+    public boolean across() {
+        return across;
+    }
+
+    /** @return the word of the last parsed move, upper-cased, from the same {@code text}. */
+    public String word(CharSequence text) {
+        char[] letters = new char[ends[1] - starts[1]];
+        for (int i = 0; i < letters.length; i++) {
+            letters[i] = Character.toUpperCase(text.charAt(starts[1] + i));
+        }
+        return new String(letters);
+    }
+
+    /** Records token bounds; stops counting once there are too many to be valid. */
+    private int split(CharSequence text) {
+        int tokens = 0;
+        int i = 0;
+        int length = text.length();
+        while (i < length && tokens <= MAX_TOKENS) {
+            while (i < length && Character.isWhitespace(text.charAt(i))) {
+                i++;
+            }
+            if (i == length) {
+                break;
+            }
+            starts[tokens] = i;
+            while (i < length && !Character.isWhitespace(text.charAt(i))) {
+                i++;
+            }
+            ends[tokens++] = i;
+        }
+        return tokens;
+    }
+}
@@ -4,11 +4,18 @@ import java.util.List;
 
 /**
  * Represents an individual Scrabble player.
+ *
+ * The hand is a packed {@link Rack}; the {@code List<Tile>} returned by
+ * {@link #getHand()} is built lazily, in letter order, only when asked for.
  */
 public class Player {
+    private static final Letter[] LETTERS = Letter.values();
+
     private String name;
     private int score;
-    private List<Tile> hand;
+    private final Rack rack;
+    private List<Tile> handView;
+    private int handViewModCount = -1;
 
     /**
      * Constructs a new Player object.
@@ -18,7 +25,7 @@ public class Player {
     public Player(String name) {
         this.name = name;
         this.score = 0;
-        this.hand = new ArrayList<>();
+        this.rack = new Rack();
     }
 
     /** @return The name of the player. */
@@ -31,9 +38,54 @@ public class Player {
         return score;
     }
 
-    /** @return The tiles in the player's hand as an unmodifiable view. */
+    /**
+     * Overwrites the player's score, used when restoring a saved game.
+     *
+     * @param score The restored total.
+     */
+    public void setScore(int score) {
+        this.score = score;
+    }
+
+    /** @return The tiles in the player's hand, in letter order, as an unmodifiable view. */
     public List<Tile> getHand() {
-        return Collections.unmodifiableList(hand);
+        if (handViewModCount != rack.modCount()) {
+            List<Tile> tiles = new ArrayList<>(rack.size());
+            for (int letter = 0; letter < TileCounts.LETTERS; letter++) {
+                for (int n = rack.count(letter); n > 0; n--) {
+                    tiles.add(Tile.of(LETTERS[letter]));
+                }
+            }
+            handView = Collections.unmodifiableList(tiles);
+            handViewModCount = rack.modCount();
+        }
+        return handView;
+    }
+
+    /** @return the live packed rack, for allocation-free rack checks. */
+    public Rack getRack() {
+        return rack;
+    }
+
+    /** @return the letters currently on the rack, in letter order. */
+    public List<Letter> snapshotRack() {
+        List<Letter> letters = new ArrayList<>(rack.size());
+        for (Tile tile : getHand()) {
+            letters.add(tile.getLetter());
+        }
+        return letters;
+    }
+
+    /**
+     * Replaces the rack with the given letters.
+     *
+     * @param letters letters as returned by {@link #snapshotRack()}
+     */
+    public void setRack(List<Letter> letters) {
+        rack.clear();
+        for (Letter letter : letters) {
+            rack.add(letter.ordinal());
+        }
     }
 
     /**
@@ -42,7 +94,7 @@ public class Player {
      * @param tile The tile to be added.
      */
     public void addTile(Tile tile) {
-        hand.add(tile);
+        rack.add(tile.getLetter().ordinal());
     }
 
     /**
@@ -51,12 +103,12 @@ public class Player {
      * @param tile The tile to be removed.
      */
     public void removeTile(Tile tile) {
-        hand.remove(tile);
+        rack.take(tile.getLetter().ordinal());
     }
 
     /** @return current number of tiles held. */
     public int handSize() {
-        return hand.size();
+        return rack.size();
     }
 
     /**
@@ -69,12 +121,7 @@ public class Player {
         if (letter == null) {
             return false;
         }
-        for (Tile t : hand) {
-            if (t.getLetter() == letter) {
-                return true;
-            }
-        }
-        return false;
+        return rack.contains(letter.ordinal());
     }
 
     /**
@@ -97,22 +144,17 @@ public class Player {
      * @return the removed tile, or {@code null} when not present.
      */
     public Tile takeTile(Letter letter) {
-        if (letter == null) {
+        if (letter == null || !rack.take(letter.ordinal())) {
             return null;
         }
-        for (int i = 0; i < hand.size(); i++) {
-            Tile tile = hand.get(i);
-            if (tile.getLetter() == letter) {
-                hand.remove(i);
-                return tile;
-            }
-        }
-        return null;
+        return Tile.of(letter);
     }
 
-    /** @return the tile removed at a given index. */
+    /** @return the tile removed at a given index of {@link #getHand()}. */
     public Tile removeTile(int index) {
-        return hand.remove(index);
+        Letter letter = LETTERS[rack.letterAt(index)];
+        rack.take(letter.ordinal());
+        return Tile.of(letter);
     }
 
     /**
@@ -131,7 +173,7 @@ public class Player {
      * @return True if the player's hand is full. False if otherwise.
      */
     public boolean isHandFull(int maxHandSize) {
-        return hand.size() == maxHandSize;
+        return rack.size() == maxHandSize;
     }
 
     /**
@@ -140,7 +182,7 @@ public class Player {
      * @return True if the player has no more tiles. False if otherwise.
      */
     public boolean hasPlayedOut() {
-        return hand.isEmpty();
+        return rack.isEmpty();
     }
 
     @Override
@@ -148,7 +190,7 @@ public class Player {
         StringBuilder sb = new StringBuilder();
         sb.append("-----").append(name).append("'s Hand-----\n");
         int i = 0;
-        for (Tile t : hand) {
+        for (Tile t : getHand()) {
             sb.append(i).append(". ").append(t.toString()).append("\n");
             i++;
         }
@@ -0,0 +1,212 @@
+/**
+ * A player's rack as per-letter counts packed into two longs.
+ *
+ * Each letter index of the {@link Alphabet} (for English the {@link Letter}
+ * ordinal, A-Z then BLANK) owns a 4-bit count: indices 0-15 live in
+ * {@code low}, indices 16-31 in {@code high}.
+ * Counting, adding and taking a letter are a shift and a mask, and because the
+ * whole multiset is two primitive values, "could this rack make that word"
+ * checks work on local copies without allocating.
+ */
+public final class Rack {
+    /** Largest count a single letter can reach. */
+    public static final int MAX_PER_LETTER = 15;
+    /** Number of letter indices a rack can hold, including the blank. */
+    public static final int SLOTS = 32;
+
+    private static final int SPLIT = 16;
+
+    private long low;
+    private long high;
+    private int size;
+    private int modCount;
+
+    /** Creates an empty rack. */
+    public Rack() {
+    }
+
+    /** @return the number of tiles with the given letter index. */
+    public int count(int letter) {
+        return letter < SPLIT
+                ? (int) (low >>> (letter << 2)) & 0xF
+                : (int) (high >>> ((letter - SPLIT) << 2)) & 0xF;
+    }
+
+    /** @return true when at least one tile with the letter index is held. */
+    public boolean contains(int letter) {
+        return count(letter) > 0;
+    }
+
+    /** @return total number of tiles held. */
+    public int size() {
+        return size;
+    }
+
+    /** @return true when the rack holds no tiles. */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Adds one tile with the given letter index. */
+    public void add(int letter) {
+        if (count(letter) == MAX_PER_LETTER) {
+            throw new IllegalStateException("Rack cannot hold more than " + MAX_PER_LETTER + " of one letter.");
+        }
+        if (letter < SPLIT) {
+            low += 1L << (letter << 2);
+        } else {
+            high += 1L << ((letter - SPLIT) << 2);
+        }
+        size++;
+        modCount++;
+    }
+
+    /**
+     * Removes one tile with the given letter index.
+     *
+     * @return false, leaving the rack unchanged, when no such tile is held
+     */
+    public boolean take(int letter) {
+        if (count(letter) == 0) {
+            return false;
+        }
+        if (letter < SPLIT) {
+            low -= 1L << (letter << 2);
+        } else {
+            high -= 1L << ((letter - SPLIT) << 2);
+        }
+        size--;
+        modCount++;
+        return true;
+    }
+
+    /** Removes every tile. */
+    public void clear() {
+        low = 0;
+        high = 0;
+        size = 0;
+        modCount++;
+    }
+
+    /** @return packed counts of indices 0-15. */
+    public long lowBits() {
+        return low;
+    }
+
+    /** @return packed counts of indices 16-31. */
+    public long highBits() {
+        return high;
+    }
+
+    /**
+     * Replaces the contents with packed counts from {@link #lowBits()} and
+     * {@link #highBits()}.
+     */
+    public void set(long lowBits, long highBits) {
+        low = lowBits;
+        high = highBits;
+        int total = 0;
+        for (int letter = 0; letter < SLOTS; letter++) {
+            total += count(letter);
+        }
+        size = total;
+        modCount++;
+    }
+
+    /** Copies {@code other} into this rack. */
+    public void copyFrom(Rack other) {
+        low = other.low;
+        high = other.high;
+        size = other.size;
+        modCount++;
+    }
+
+    /**
+     * Identifies the multiset of tiles. Each tile takes six bits, enough for
+     * every one of the {@link #SLOTS} indices plus the empty marker, so for
+     * racks of up to ten tiles the value is exact: equal racks, and only
+     * equal racks, share a signature. Larger racks fall back to a hash of
+     * the packed counts.
+     */
+    public long signature() {
+        if (size > 10) {
+            return low * 0x9e3779b97f4a7c15L ^ high;
+        }
+        long signature = 0;
+        for (int letter = 0; letter < SLOTS; letter++) {
+            for (int n = count(letter); n > 0; n--) {
+                signature = (signature << 6) | (letter + 1);
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * Checks whether every letter of {@code word} can be supplied from this
+     * rack, using blanks for letters that run out. Allocation free.
+     *
+     * @param word letters A-Z in either case
+     */
+    public boolean canForm(CharSequence word) {
+        return canForm(word, Alphabet.english());
+    }
+
+    /**
+     * Same as {@link #canForm(CharSequence)} for a rack holding tiles of
+     * {@code alphabet}.
+     */
+    public boolean canForm(CharSequence word, Alphabet alphabet) {
+        long lo = low;
+        long hi = high;
+        int blanks = count(alphabet.blankIndex());
+        for (int i = 0; i < word.length(); i++) {
+            int letter = alphabet.indexOf(word.charAt(i));
+            if (letter < 0) {
+                return false;
+            }
+            if (letter < SPLIT) {
+                long unit = 1L << (letter << 2);
+                if (((lo >>> (letter << 2)) & 0xF) != 0) {
+                    lo -= unit;
+                    continue;
+                }
+            } else {
+                long unit = 1L << ((letter - SPLIT) << 2);
+                if (((hi >>> ((letter - SPLIT) << 2)) & 0xF) != 0) {
+                    hi -= unit;
+                    continue;
+                }
+            }
+            if (blanks == 0) {
+                return false;
+            }
+            blanks--;
+        }
+        return true;
+    }
+
+    /**
+     * Counter bumped on every change, so views built from the rack can tell
+     * when they are stale.
+     */
+    public int modCount() {
+        return modCount;
+    }
+
+    /**
+     * @param ordinal position in letter order, 0 to {@code size() - 1}
+     * @return letter index of the tile at that position
+     */
+    public int letterAt(int ordinal) {
+        if (ordinal < 0 || ordinal >= size) {
+            throw new IndexOutOfBoundsException("Rack index " + ordinal + " out of range for size " + size);
+        }
+        int letter = 0;
+        int remaining = ordinal;
+        while (remaining >= count(letter)) {
+            remaining -= count(letter);
+            letter++;
+        }
+        return letter;
+    }
+}
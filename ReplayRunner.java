@@ -0,0 +1,302 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Headless replay of recorded games, for checking rules changes against
+ * large corpora. Run with
+ * {@code java ReplayRunner <games-file> [dictionary] [threads]}.
+ *
+ * A games file holds any number of games. Each starts with a header line
+ * {@code GAME <seed> <name> <name> [...]} followed by one move per line in
+ * {@link Game#playTurn} notation or {@code PASS}. Blank lines and lines
+ * starting with {@code #} are ignored. Games are replayed in parallel with
+ * no rendering. Moves are parsed by the game's {@link NotationTokenizer},
+ * which does not allocate. Results are written in file order, one line
+ * per game, followed by a summary.
+ *
+ * The file is streamed: at most a few games per thread are held in memory
+ * at once, so corpora larger than the heap replay fine.
+ */
+public final class ReplayRunner {
+    private static final int IN_FLIGHT_PER_THREAD = 4;
+
+    private final Dictionary dictionary;
+    private final int threads;
+
+    public ReplayRunner(Dictionary dictionary, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive");
+        }
+        this.dictionary = Objects.requireNonNull(dictionary, "dictionary");
+        this.threads = threads;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: java ReplayRunner <games-file> [dictionary] [threads]");
+            System.exit(2);
+        }
+        Dictionary dictionary = new Dictionary(args.length > 1 ? args[1] : "words.txt");
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        ReplayRunner runner = new ReplayRunner(dictionary, threads);
+        Summary summary;
+        try (Reader in = Files.newBufferedReader(Paths.get(args[0]), StandardCharsets.UTF_8)) {
+            summary = runner.run(in, result -> System.out.println(result.format()));
+        }
+        System.out.println(summary.format());
+    }
+
+    /**
+     * Replays every game read from {@code in}.
+     *
+     * @param results receives one result per game, in file order, on the calling thread
+     * @return totals over all games
+     * @throws IllegalArgumentException when a game header is malformed or a move precedes any header
+     */
+    public Summary run(Reader in, Consumer<GameResult> results) throws IOException {
+        BufferedReader reader = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        Deque<Future<GameResult>> pending = new ArrayDeque<>();
+        Summary summary = new Summary();
+        long start = System.nanoTime();
+        try {
+            String header = null;
+            List<String> moves = new ArrayList<>();
+            int index = 0;
+            int lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                    continue;
+                }
+                if (trimmed.regionMatches(true, 0, "GAME ", 0, 5)) {
+                    if (header != null) {
+                        submit(executor, pending, index++, header, moves);
+                        drain(pending, threads * IN_FLIGHT_PER_THREAD, summary, results);
+                        moves = new ArrayList<>();
+                    }
+                    header = trimmed;
+                } else if (header == null) {
+                    throw new IllegalArgumentException("Line " + lineNumber + ": move before any GAME header.");
+                } else {
+                    moves.add(trimmed);
+                }
+            }
+            if (header != null) {
+                submit(executor, pending, index, header, moves);
+            }
+            drain(pending, 0, summary, results);
+        } finally {
+            executor.shutdownNow();
+        }
+        summary.wallNanos = System.nanoTime() - start;
+        return summary;
+    }
+
+    /**
+     * Replays one game on the calling thread.
+     *
+     * @param header {@code GAME <seed> <name> <name> [...]}
+     */
+    public GameResult replay(int index, String header, List<String> moves) {
+        String[] fields = header.trim().split("\\s+");
+        if (fields.length < 4) {
+            throw new IllegalArgumentException("Game " + index + ": header needs a seed and at least two names.");
+        }
+        long seed;
+        try {
+            seed = Long.parseLong(fields[1]);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Game " + index + ": seed must be numeric.", ex);
+        }
+        List<String> names = Arrays.asList(fields).subList(2, fields.length);
+
+        long start = System.nanoTime();
+        Game game = new Game(names, dictionary, seed);
+        int played = 0;
+        int passed = 0;
+        int rejected = 0;
+        for (String move : moves) {
+            if (game.isGameOver()) {
+                rejected++;
+            } else if (NotationTokenizer.isPass(move)) {
+                game.passTurn();
+                passed++;
+            } else if (game.playTurn(move).success()) {
+                played++;
+            } else {
+                rejected++;
+            }
+        }
+        long nanos = System.nanoTime() - start;
+
+        int[] scores = new int[names.size()];
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = game.getPlayers().get(i).getScore();
+        }
+        return new GameResult(index, seed, names, played, passed, rejected, scores, game.isGameOver(), nanos);
+    }
+
+    private void submit(ExecutorService executor, Deque<Future<GameResult>> pending,
+                        int index, String header, List<String> moves) {
+        pending.add(executor.submit(() -> replay(index, header, moves)));
+    }
+
+    /** Hands finished results over in order until at most {@code keep} games remain in flight. */
+    private static void drain(Deque<Future<GameResult>> pending, int keep, Summary summary,
+                              Consumer<GameResult> results) {
+        while (pending.size() > keep) {
+            GameResult result;
+            try {
+                result = pending.poll().get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while replaying games.", ex);
+            } catch (ExecutionException ex) {
+                if (ex.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) ex.getCause();
+                }
+                throw new UncheckedIOException(new IOException(ex.getCause()));
+            }
+            summary.add(result);
+            results.accept(result);
+        }
+    }
+
+    /** Outcome of one replayed game. */
+    public static final class GameResult {
+        private final int index;
+        private final long seed;
+        private final List<String> names;
+        private final int played;
+        private final int passed;
+        private final int rejected;
+        private final int[] scores;
+        private final boolean gameOver;
+        private final long nanos;
+
+        GameResult(int index, long seed, List<String> names, int played, int passed, int rejected,
+                   int[] scores, boolean gameOver, long nanos) {
+            this.index = index;
+            this.seed = seed;
+            this.names = Collections.unmodifiableList(names);
+            this.played = played;
+            this.passed = passed;
+            this.rejected = rejected;
+            this.scores = scores;
+            this.gameOver = gameOver;
+            this.nanos = nanos;
+        }
+
+        /** @return position of the game in the file, from 0. */
+        public int index() {
+            return index;
+        }
+
+        public long seed() {
+            return seed;
+        }
+
+        public int played() {
+            return played;
+        }
+
+        public int passed() {
+            return passed;
+        }
+
+        /** @return moves the rules refused, including any recorded after the game ended. */
+        public int rejected() {
+            return rejected;
+        }
+
+        /** @return final score of player {@code player}, in seating order. */
+        public int score(int player) {
+            return scores[player];
+        }
+
+        public boolean gameOver() {
+            return gameOver;
+        }
+
+        /** @return time spent replaying the game, in nanoseconds. */
+        public long nanos() {
+            return nanos;
+        }
+
+        /**
+         * @return one line with the outcome, timing last so runs can be
+         *         compared with the timing column cut off
+         */
+        public String format() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("game ").append(index).append(" seed=").append(seed)
+                    .append(" played=").append(played).append(" passed=").append(passed)
+                    .append(" rejected=").append(rejected).append(" over=").append(gameOver).append(" scores=");
+            for (int i = 0; i < scores.length; i++) {
+                sb.append(i == 0 ? "" : ",").append(names.get(i)).append(':').append(scores[i]);
+            }
+            sb.append(" time=").append(nanos / 1_000).append("us");
+            return sb.toString();
+        }
+    }
+
+    /** Totals over a whole run. */
+    public static final class Summary {
+        private int games;
+        private long moves;
+        private long rejected;
+        private long replayNanos;
+        private long wallNanos;
+
+        private void add(GameResult result) {
+            games++;
+            moves += result.played + result.passed + result.rejected;
+            rejected += result.rejected;
+            replayNanos += result.nanos;
+        }
+
+        public int games() {
+            return games;
+        }
+
+        public long moves() {
+            return moves;
+        }
+
+        public long rejected() {
+            return rejected;
+        }
+
+        /** @return elapsed time of the whole run, in nanoseconds. */
+        public long wallNanos() {
+            return wallNanos;
+        }
+
+        public String format() {
+            double seconds = wallNanos / 1e9;
+            return String.format("%d games, %d moves (%d rejected) in %.3f s: %.0f moves/s, %.1f us per game",
+                    games, moves, rejected, seconds, seconds > 0 ? moves / seconds : 0,
+                    games > 0 ? replayNanos / 1e3 / games : 0);
+        }
+    }
+}
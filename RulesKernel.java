@@ -0,0 +1,435 @@
+import java.util.Arrays;
+
+/**
+ * Move validation and scoring shared by {@link Game} and {@link Scrabble_Model}.
+ *
+ * The kernel works on the front ends' own primitive state: a {@code char[][]}
+ * grid ('\0' for empty), a {@code boolean[][]} of blank flags, a packed
+ * {@link Rack}, and the flat multiplier tables of a {@link CompiledLayout}.
+ * Letters are indexed by an {@link Alphabet}, English unless one is given.
+ * Results of {@link #plan} are kept in scratch arrays
+ * owned by the kernel, so validating and scoring a move allocates nothing.
+ * A kernel belongs to one game and must not be shared between threads.
+ *
+ * Placement legality uses occupancy bitboards kept next to the grid: one
+ * {@code long} per row and one per column, bit {@code i} set when square
+ * {@code i} of that line holds a tile. Checking that a move places a new
+ * tile, does not butt against other tiles at either end, and touches the
+ * existing tiles (or covers the centre on the first move) is a handful of
+ * masks on at most three lines. {@link #apply} keeps the bitboards current;
+ * callers that change the grid any other way, such as undo or loading a
+ * save, call {@link #sync} afterwards.
+ *
+ * Typical use: {@link #plan}, then {@link #score}, {@link #consume} and
+ * {@link #apply} once the move is accepted. {@link #score} also decides
+ * which squares the blanks cover, so call it before {@link #apply}.
+ */
+public final class RulesKernel {
+    /** Placement fits the board and the rack supplies every new tile. */
+    public static final int OK = 0;
+    /** Placement runs off the board. */
+    public static final int OUT_OF_BOUNDS = 1;
+    /** Placement disagrees with a letter already on the board. */
+    public static final int CONFLICT = 2;
+    /** Every square of the word is already occupied. */
+    public static final int NO_NEW_TILES = 3;
+    /** Tiles sit directly before or after the word, so it is only part of a longer run. */
+    public static final int RUN_CONTINUES = 4;
+    /** First move of the game does not cover the centre square. */
+    public static final int MISSES_CENTRE = 5;
+    /** Word neither uses nor touches any tile already on the board. */
+    public static final int NOT_CONNECTED = 6;
+    /** Rack lacks the tiles needed, even counting blanks. */
+    public static final int MISSING_TILES = 7;
+    /** Word contains a character that is not a letter of the alphabet. */
+    public static final int INVALID_LETTER = 8;
+    /** Word is not in the dictionary; reported by callers, not by {@link #plan}. */
+    public static final int NOT_A_WORD = 9;
+
+    /** Tiles a move must place to earn the bingo bonus. */
+    public static final int BINGO_TILES = 7;
+    /** Points added for using all seven rack tiles. */
+    public static final int BINGO_BONUS = 50;
+
+    private final int[] letters;
+    private final boolean[] newTile;
+    private final boolean[] blank;
+    private final Alphabet alphabet;
+    private final int blankIndex;
+    private final int[] points;
+    private final int[] rackCounts;
+    private final int[] available;
+    private final long[] rowBits;
+    private final long[] colBits;
+    private int tilesOnBoard;
+    private int length;
+    private int row;
+    private int col;
+    private boolean across;
+    private int newTileCount;
+
+    /**
+     * @param maxWordLength longest placement to support, normally the board size
+     */
+    public RulesKernel(int maxWordLength) {
+        this(maxWordLength, Alphabet.english());
+    }
+
+    /**
+     * @param maxWordLength longest placement to support, normally the board size
+     * @param alphabet letters and tile values the words are spelled in
+     */
+    public RulesKernel(int maxWordLength, Alphabet alphabet) {
+        this.alphabet = alphabet;
+        this.blankIndex = alphabet.blankIndex();
+        this.points = new int[alphabet.tileKinds()];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = alphabet.points(i);
+        }
+        this.rackCounts = new int[alphabet.tileKinds()];
+        this.available = new int[alphabet.tileKinds()];
+        if (maxWordLength > Long.SIZE - 1) {
+            throw new IllegalArgumentException("Boards larger than " + (Long.SIZE - 1) + " squares per side are not supported.");
+        }
+        this.rowBits = new long[maxWordLength];
+        this.colBits = new long[maxWordLength];
+        this.letters = new int[maxWordLength];
+        this.newTile = new boolean[maxWordLength];
+        this.blank = new boolean[maxWordLength];
+    }
+
+    /**
+     * @return true for failures about where the word sits on the board, as
+     *         opposed to the rack or the letters it is spelled with
+     */
+    public static boolean isPlacementError(int status) {
+        return status >= OUT_OF_BOUNDS && status <= NOT_CONNECTED;
+    }
+
+    /**
+     * @param status a failure code returned by {@link #plan}
+     * @return the message shown to players for that failure
+     */
+    public static String describe(int status) {
+        switch (status) {
+            case OUT_OF_BOUNDS:
+                return "Out of bounds.";
+            case CONFLICT:
+                return "Letter conflict.";
+            case NO_NEW_TILES:
+                return "Move must place at least one new tile.";
+            case RUN_CONTINUES:
+                return "Word runs into neighbouring tiles; play the whole word.";
+            case MISSES_CENTRE:
+                return "First word must cover the centre square.";
+            case NOT_CONNECTED:
+                return "Word must connect to tiles already on the board.";
+            case MISSING_TILES:
+                return "Rack does not contain the needed letters.";
+            case INVALID_LETTER:
+                return "Word contains a character that is not a letter.";
+            case NOT_A_WORD:
+                return "Word not found in dictionary.";
+            default:
+                return "Cannot place word.";
+        }
+    }
+
+    /**
+     * Rebuilds the occupancy bitboards from {@code grid}. Call after the grid
+     * was changed other than through {@link #apply}.
+     */
+    public void sync(char[][] grid) {
+        Arrays.fill(rowBits, 0L);
+        Arrays.fill(colBits, 0L);
+        tilesOnBoard = 0;
+        for (int r = 0; r < grid.length; r++) {
+            for (int c = 0; c < grid[r].length; c++) {
+                if (grid[r][c] != '\0') {
+                    rowBits[r] |= 1L << c;
+                    colBits[c] |= 1L << r;
+                    tilesOnBoard++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces the occupancy bitboards with ones the caller keeps itself, such
+     * as those of a {@link GamePosition}. Costs one copy per board line.
+     */
+    public void load(long[] rows, long[] cols, int tiles) {
+        Arrays.fill(rowBits, 0L);
+        Arrays.fill(colBits, 0L);
+        System.arraycopy(rows, 0, rowBits, 0, rows.length);
+        System.arraycopy(cols, 0, colBits, 0, cols.length);
+        tilesOnBoard = tiles;
+    }
+
+    /** @return number of tiles on the board as tracked by the bitboards. */
+    public int tilesOnBoard() {
+        return tilesOnBoard;
+    }
+
+    /**
+     * Checks bounds, conflicts with existing letters, placement legality
+     * (a new tile, a complete run, connected to the board or covering the
+     * centre on the first move), and whether the rack can supply every
+     * square the word leaves empty. Natural tiles are used before blanks.
+     * The outcome is kept for the calls that follow.
+     *
+     * @return {@link #OK} or one of the failure codes
+     */
+    public int plan(char[][] grid, int startRow, int startCol, boolean horizontal, CharSequence word, Rack rack) {
+        loadRack(rack);
+        return plan(grid, startRow, startCol, horizontal, word);
+    }
+
+    /**
+     * Unpacks the rack counts once so that many placements can be planned
+     * against the same rack with {@link #plan(char[][], int, int, boolean, CharSequence)}.
+     */
+    public void loadRack(Rack rack) {
+        for (int i = 0; i < rackCounts.length; i++) {
+            rackCounts[i] = rack.count(i);
+        }
+    }
+
+    /**
+     * Same as {@link #plan(char[][], int, int, boolean, CharSequence, Rack)},
+     * drawing on the rack last passed to {@link #loadRack}.
+     */
+    public int plan(char[][] grid, int startRow, int startCol, boolean horizontal, CharSequence word) {
+        int wordLength = word.length();
+        int size = grid.length;
+        int endRow = horizontal ? startRow : startRow + wordLength - 1;
+        int endCol = horizontal ? startCol + wordLength - 1 : startCol;
+        if (wordLength > letters.length || startRow < 0 || startCol < 0 || endRow >= size || endCol >= size) {
+            return OUT_OF_BOUNDS;
+        }
+        int r = startRow;
+        int c = startCol;
+        for (int i = 0; i < wordLength; i++) {
+            char existing = grid[r][c];
+            char ch = word.charAt(i);
+            if (existing != '\0' && existing != ch) {
+                return CONFLICT;
+            }
+            if (horizontal) c++; else r++;
+        }
+
+        int legality = checkPlacement(size, horizontal ? rowBits : colBits,
+                horizontal ? startRow : startCol, horizontal ? startCol : startRow, wordLength);
+        if (legality != OK) {
+            return legality;
+        }
+
+        System.arraycopy(rackCounts, 0, available, 0, rackCounts.length);
+        int placed = 0;
+        r = startRow;
+        c = startCol;
+        for (int i = 0; i < wordLength; i++) {
+            int letter = alphabet.indexOf(word.charAt(i));
+            if (letter < 0) {
+                return INVALID_LETTER;
+            }
+            letters[i] = letter;
+            boolean empty = grid[r][c] == '\0';
+            newTile[i] = empty;
+            blank[i] = false;
+            if (empty) {
+                placed++;
+                if (available[letter] > 0) {
+                    available[letter]--;
+                } else if (available[blankIndex] > 0) {
+                    available[blankIndex]--;
+                    blank[i] = true;
+                } else {
+                    return MISSING_TILES;
+                }
+            }
+            if (horizontal) c++; else r++;
+        }
+
+        this.length = wordLength;
+        this.row = startRow;
+        this.col = startCol;
+        this.across = horizontal;
+        this.newTileCount = placed;
+        return OK;
+    }
+
+    /**
+     * Legality of a word on {@code line} covering squares {@code start} to
+     * {@code start + length - 1} of that line. {@code lines} holds the
+     * bitboards running the same way as the word, so its neighbours are the
+     * adjacent entries.
+     */
+    private int checkPlacement(int size, long[] lines, int line, int start, int length) {
+        long span = ((1L << length) - 1) << start;
+        long occupied = lines[line] & span;
+        if (occupied == span) {
+            return NO_NEW_TILES;
+        }
+        long ends = (1L << start) >>> 1 | 1L << (start + length);
+        if ((lines[line] & ends) != 0) {
+            return RUN_CONTINUES;
+        }
+        if (tilesOnBoard == 0) {
+            int centre = size / 2;
+            return line == centre && (span & 1L << centre) != 0 ? OK : MISSES_CENTRE;
+        }
+        long touching = occupied;
+        if (line > 0) {
+            touching |= lines[line - 1] & span;
+        }
+        if (line + 1 < size) {
+            touching |= lines[line + 1] & span;
+        }
+        return touching != 0 ? OK : NOT_CONNECTED;
+    }
+
+    /**
+     * Scores the planned move: letter premiums and word multipliers apply to
+     * newly placed tiles only, blanks count zero, and seven new tiles add the
+     * bingo bonus before the word multiplier.
+     *
+     * Blanks are first moved onto the squares where they cost least: see
+     * {@link #placeBlanks}. The result is the best score the rack allows for
+     * this placement.
+     *
+     * @param blanks blank flags of tiles already on the board
+     * @param layout premium squares of the board
+     */
+    public int score(boolean[][] blanks, CompiledLayout layout) {
+        byte[] letterMultipliers = layout.letterMultipliers;
+        byte[] wordMultipliers = layout.wordMultipliers;
+        int size = layout.size();
+        placeBlanks(letterMultipliers, size);
+        int total = 0;
+        int wordMultiplier = 1;
+        int r = row;
+        int c = col;
+        for (int i = 0; i < length; i++) {
+            int square = r * size + c;
+            if (newTile[i]) {
+                if (!blank[i]) {
+                    total += points[letters[i]] * letterMultipliers[square];
+                }
+                wordMultiplier *= wordMultipliers[square];
+            } else if (!blanks[r][c]) {
+                total += points[letters[i]];
+            }
+            if (across) c++; else r++;
+        }
+        if (newTileCount == BINGO_TILES) {
+            total += BINGO_BONUS;
+        }
+        return total * wordMultiplier;
+    }
+
+    /**
+     * Chooses which new tiles of each letter are played as blanks. Planning
+     * fixes how many blanks each letter needs (its shortfall in the rack).
+     * Word multipliers do not depend on the choice, so the score is highest
+     * when those blanks sit on the squares with the lowest letter
+     * multipliers for that letter. Each blank is swapped with the
+     * cheapest natural tile of the same letter when that is lower. A swap
+     * only ever moves a higher multiplier to the natural side, so one pass
+     * leaves every blank on a square no dearer than any natural tile of its
+     * letter, which is optimal for any number of blanks. Cost is
+     * O(length x blanks) with no allocation.
+     */
+    private void placeBlanks(byte[] letterMultipliers, int size) {
+        int step = across ? 1 : size;
+        int origin = row * size + col;
+        for (int i = 0; i < length; i++) {
+            if (!newTile[i] || !blank[i]) {
+                continue;
+            }
+            int cheapest = i;
+            int cheapestMultiplier = letterMultipliers[origin + i * step];
+            for (int j = 0; j < length; j++) {
+                if (newTile[j] && !blank[j] && letters[j] == letters[i]
+                        && letterMultipliers[origin + j * step] < cheapestMultiplier) {
+                    cheapest = j;
+                    cheapestMultiplier = letterMultipliers[origin + j * step];
+                }
+            }
+            if (cheapest != i) {
+                blank[i] = false;
+                blank[cheapest] = true;
+            }
+        }
+    }
+
+    /** Removes the planned new tiles from the rack. */
+    public void consume(Rack rack) {
+        for (int i = 0; i < length; i++) {
+            if (newTile[i] && !rack.take(blank[i] ? blankIndex : letters[i])) {
+                throw new IllegalStateException("Rack changed between planning and consuming the move.");
+            }
+        }
+    }
+
+    /**
+     * Writes the planned new tiles and their blank flags onto the board arrays
+     * and records them in the occupancy bitboards.
+     *
+     * @param word the same word passed to {@link #plan}
+     */
+    public void apply(char[][] grid, boolean[][] blanks, CharSequence word) {
+        int r = row;
+        int c = col;
+        for (int i = 0; i < length; i++) {
+            if (newTile[i]) {
+                grid[r][c] = word.charAt(i);
+                blanks[r][c] = blank[i];
+                rowBits[r] |= 1L << c;
+                colBits[c] |= 1L << r;
+            }
+            if (across) c++; else r++;
+        }
+        tilesOnBoard += newTileCount;
+    }
+
+    /**
+     * Removes the planned new tiles, blanks as the blank, from {@code counts}.
+     * Used by {@link UnseenTiles} to follow tiles leaving the off-board pool.
+     */
+    public void removePlacedFrom(TileCounts counts) {
+        for (int i = 0; i < length; i++) {
+            if (newTile[i]) {
+                counts.remove(blank[i] ? blankIndex : letters[i]);
+            }
+        }
+    }
+
+    /**
+     * @param size board size the squares are numbered for
+     * @return squares of the planned new tiles as {@code row * size + col}, in word order
+     */
+    public int[] placedSquares(int size) {
+        int[] squares = new int[newTileCount];
+        int r = row;
+        int c = col;
+        int n = 0;
+        for (int i = 0; i < length; i++) {
+            if (newTile[i]) {
+                squares[n++] = r * size + c;
+            }
+            if (across) c++; else r++;
+        }
+        return squares;
+    }
+
+    /** @return number of tiles the planned move takes from the rack. */
+    public int newTileCount() {
+        return newTileCount;
+    }
+
+    /** @return true when position {@code index} of the planned word is a new blank. */
+    public boolean isBlankAt(int index) {
+        return index < length && newTile[index] && blank[index];
+    }
+}
@@ -10,13 +10,12 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Deque;
-import java.util.EnumMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 
@@ -28,11 +27,16 @@ public class Scrabble_Model {
     public ArrayList<Player> players;
     public int currentPlayerIndex;
 
-    private PremiumSquare[][] premiumSquares;
+    private CompiledLayout layout;
     private boolean[][] blankSquares;
+    private ExposureMap exposure;
+    private final RulesKernel rules = new RulesKernel(Board.MAX_SIZE);
+    private final UnseenTiles unseen = new UnseenTiles(Alphabet.english().distribution(TileBag.DISTRIBUTION));
     private final Deque<GameState> undoStack = new ArrayDeque<>();
     private final Deque<GameState> redoStack = new ArrayDeque<>();
-    private String boardName;
+    private long seed;
+    private long version;
+    private volatile GamePosition published;
 
     public Scrabble_Model() {
         this(new BoardConfigLoader.BoardLayout("Default", createAllNormalLayout()));
@@ -43,12 +47,22 @@ public class Scrabble_Model {
     }
 
     public Scrabble_Model(BoardConfigLoader.BoardLayout layout, Dictionary dictionary) {
-        this.board = new Board();
-        this.tileBag = new TileBag();
+        this(layout, dictionary, GameRandom.newSeed());
+    }
+
+    /**
+     * Creates a model whose bag order, and therefore every rack, is determined
+     * by {@code seed}. The seed is kept in saves so a game can be replayed.
+     */
+    public Scrabble_Model(BoardConfigLoader.BoardLayout layout, Dictionary dictionary, long seed) {
+        this.board = new Board(layout.size());
+        this.seed = seed;
+        this.tileBag = new TileBag(seed);
         this.dictionary = Objects.requireNonNull(dictionary, "dictionary");
         this.players = new ArrayList<>();
         this.currentPlayerIndex = 0;
-        applyLayout(layout.getName(), layout.copySquares());
+        applyLayout(layout.compiled());
+        publish();
     }
 
     private static PremiumSquare[][] createAllNormalLayout() {
@@ -61,11 +75,17 @@ public class Scrabble_Model {
         return layout;
     }
 
-    private void applyLayout(String name, PremiumSquare[][] layout) {
-        this.boardName = name;
-        this.premiumSquares = layout;
-        this.blankSquares = new boolean[Board.SIZE][Board.SIZE];
-        this.board.reset();
+    private void applyLayout(CompiledLayout layout) {
+        this.layout = layout;
+        this.blankSquares = new boolean[layout.size()][layout.size()];
+        if (board.size() != layout.size()) {
+            this.board = new Board(layout.size());
+        } else {
+            this.board.reset();
+        }
+        rules.sync(board.grid);
+        exposure = new ExposureMap(layout);
+        unseen.restore(Alphabet.english().distribution(TileBag.DISTRIBUTION));
         this.undoStack.clear();
         this.redoStack.clear();
     }
@@ -83,42 +103,167 @@ public class Scrabble_Model {
         currentPlayerIndex = 0;
         undoStack.clear();
         redoStack.clear();
+        publish();
     }
 
     public String getBoardName() {
-        return boardName;
+        return layout.getName();
+    }
+
+    /**
+     * @return tracker of tiles off the board; pass a player's rack to
+     *         {@link UnseenTiles#unseenBy} for the tiles that player cannot see
+     */
+    public UnseenTiles getUnseenTiles() {
+        return unseen;
+    }
+
+    /**
+     * @return premium exposure of every square, kept current after each move,
+     *         so evaluators and the view can see which openings a play leaves
+     */
+    public ExposureMap getExposure() {
+        return exposure;
+    }
+
+    /** @return the premium layout this game is scored with. */
+    public CompiledLayout getLayout() {
+        return layout;
+    }
+
+    /** @return the seed the tile bag was created from. */
+    public long getSeed() {
+        return seed;
     }
 
     public MoveResult playWord(Placement placement) {
         if (players.isEmpty()) {
             return MoveResult.failure("No players have joined the game.");
         }
-        StringBuilder reason = new StringBuilder();
-        if (!board.canPlace(placement, reason)) {
-            String message = reason.length() > 0 ? reason.toString() : "Cannot place word.";
-            return MoveResult.failure(message);
+        Player current = getCurrentPlayer();
+        int status = rules.plan(board.grid, placement.getRow(), placement.getCol(),
+                placement.getDirection() == Placement.Direction.ACROSS, placement.getWord(), current.getRack());
+        if (RulesKernel.isPlacementError(status)) {
+            return MoveResult.failure(RulesKernel.describe(status));
         }
         if (!dictionary.isValidWord(placement.getWord())) {
             return MoveResult.failure("Word not found in dictionary.");
         }
-        Player current = getCurrentPlayer();
-        TileUsage usage = planTileUsage(current, placement);
-        if (usage == null) {
-            return MoveResult.failure("Rack does not contain the needed letters.");
+        if (status != RulesKernel.OK) {
+            return MoveResult.failure(RulesKernel.describe(status));
         }
 
         pushUndoState();
         redoStack.clear();
 
-        int scored = scorePlacement(placement, usage);
-        consumeTilesForPlacement(current, placement, usage);
-        applyPlacement(placement, usage);
+        int scored = rules.score(blankSquares, layout);
+        rules.consume(current.getRack());
+        rules.apply(board.grid, blankSquares, placement.getWord());
+        unseen.recordPlay(rules);
+        exposure.update(board.grid, rules.placedSquares(board.size()));
         current.addPoints(scored);
         refillRack(current);
-        advanceTurn();
+        nextPlayer();
+        publishMove(placement);
         return MoveResult.success(scored, placement.getWord());
     }
 
+    /**
+     * Checks every placement against the current board and {@code rack}
+     * without changing the game. The rack is unpacked once for the whole
+     * batch and each candidate is planned and scored with the shared kernel,
+     * so callers such as hint generators can test thousands of moves cheaply.
+     *
+     * @param rack tiles to play from, usually {@code getCurrentPlayer().getRack()}
+     */
+    public MoveBatch evaluatePlacements(List<Placement> placements, Rack rack) {
+        MoveBatch batch = new MoveBatch(placements.size());
+        rules.loadRack(rack);
+        for (int i = 0; i < placements.size(); i++) {
+            Placement placement = placements.get(i);
+            int status = rules.plan(board.grid, placement.getRow(), placement.getCol(),
+                    placement.getDirection() == Placement.Direction.ACROSS, placement.getWord());
+            if (status == RulesKernel.OK && !dictionary.isValidWord(placement.getWord())) {
+                status = RulesKernel.NOT_A_WORD;
+            }
+            int score = status == RulesKernel.OK ? rules.score(blankSquares, layout) : 0;
+            batch.record(i, status, score);
+        }
+        return batch;
+    }
+
+    /**
+     * Read-consistent view of the game for other threads, such as hint
+     * engines, autosave and spectators. Every change made through this
+     * class publishes a fresh immutable {@link GamePosition} with a higher
+     * version through a volatile field. Readers never see a half-applied
+     * move and never block the thread that plays. A move copies only the
+     * rows it wrote to and shares the rest with the previous position;
+     * undo, redo and loads publish a full copy. Nobody waits on readers.
+     *
+     * @return the latest published position
+     */
+    public GamePosition snapshot() {
+        return published;
+    }
+
+    /**
+     * Publishes the current state to {@link #snapshot()} under the next
+     * version. Moves, undo, redo and loads do this themselves; call it after
+     * changing the public fields directly.
+     */
+    public final void publish() {
+        published = capture(++version);
+    }
+
+    /**
+     * Copies the game into an immutable {@link GamePosition}. Copying costs
+     * one pass over the board; branching from the position afterwards does not.
+     * The copy carries the version of the latest publish, so calling this
+     * does not change the game.
+     */
+    public GamePosition toPosition() {
+        return capture(version);
+    }
+
+    private GamePosition capture(long version) {
+        return GamePosition.of(layout, board.snapshot(), copyBlanks(), packRacks(), copyScores(),
+                copyBagCounts(), tileBag.getRandomState(), currentPlayerIndex, version);
+    }
+
+    /** Publishes after {@code placement} was applied, copying only the rows it spans. */
+    private void publishMove(Placement placement) {
+        int firstRow = placement.getRow();
+        int lastRow = placement.getDirection() == Placement.Direction.ACROSS
+                ? firstRow : firstRow + placement.getWord().length() - 1;
+        published = published.withRows(board.grid, blankSquares, firstRow, lastRow, packRacks(), copyScores(),
+                copyBagCounts(), tileBag.getRandomState(), currentPlayerIndex, ++version);
+    }
+
+    private long[] packRacks() {
+        long[] racks = new long[players.size() * 2];
+        for (int i = 0; i < players.size(); i++) {
+            Rack rack = players.get(i).getRack();
+            racks[i * 2] = rack.lowBits();
+            racks[i * 2 + 1] = rack.highBits();
+        }
+        return racks;
+    }
+
+    private int[] copyScores() {
+        int[] scores = new int[players.size()];
+        for (int i = 0; i < players.size(); i++) {
+            scores[i] = players.get(i).getScore();
+        }
+        return scores;
+    }
+
+    private int[] copyBagCounts() {
+        int[] bag = new int[TileCounts.LETTERS];
+        tileBag.copyCounts(bag);
+        return bag;
+    }
+
     public boolean canUndo() {
         return !undoStack.isEmpty();
     }
@@ -134,6 +279,7 @@ public class Scrabble_Model {
         redoStack.push(new GameState(this));
         GameState previous = undoStack.pop();
         previous.restore(this);
+        publish();
         return true;
     }
 
@@ -144,6 +290,7 @@ public class Scrabble_Model {
         undoStack.push(new GameState(this));
         GameState restored = redoStack.pop();
         restored.restore(this);
+        publish();
         return true;
     }
 
@@ -158,9 +305,14 @@ public class Scrabble_Model {
         try (ObjectInputStream in = new ObjectInputStream(new FileInputStream(file))) {
             state = (GameState) in.readObject();
         }
-        state.restore(this);
+        try {
+            state.restore(this);
+        } catch (IllegalArgumentException ex) {
+            throw new IOException("Failed to load " + file + ": " + ex.getMessage(), ex);
+        }
         undoStack.clear();
         redoStack.clear();
+        publish();
     }
 
     public Player getCurrentPlayer() {
@@ -168,6 +320,11 @@ public class Scrabble_Model {
     }
 
     public void advanceTurn() {
+        nextPlayer();
+        publish();
+    }
+
+    private void nextPlayer() {
         if (players.isEmpty()) {
             currentPlayerIndex = 0;
         } else {
@@ -189,127 +346,6 @@ public class Scrabble_Model {
         }
     }
 
-    private TileUsage planTileUsage(Player player, Placement placement) {
-        Map<Letter, Integer> rackCounts = new EnumMap<>(Letter.class);
-        for (Tile tile : player.getHand()) {
-            rackCounts.merge(tile.getLetter(), 1, Integer::sum);
-        }
-        int r = placement.getRow();
-        int c = placement.getCol();
-        List<Boolean> blanks = new ArrayList<>(placement.getWord().length());
-        int newTiles = 0;
-        for (int i = 0; i < placement.getWord().length(); i++) {
-            if (board.getCell(r, c) == Board.EMPTY) {
-                newTiles++;
-                Letter needed = letterFor(placement.getWord().charAt(i));
-                int available = rackCounts.getOrDefault(needed, 0);
-                if (available > 0) {
-                    rackCounts.put(needed, available - 1);
-                    blanks.add(Boolean.FALSE);
-                } else {
-                    int blankCount = rackCounts.getOrDefault(Letter.BLANK, 0);
-                    if (blankCount == 0) {
-                        return null;
-                    }
-                    rackCounts.put(Letter.BLANK, blankCount - 1);
-                    blanks.add(Boolean.TRUE);
-                }
-            } else {
-                blanks.add(null);
-            }
-            if (placement.getDirection() == Placement.Direction.ACROSS) {
-                c++;
-            } else {
-                r++;
-            }
-        }
-        return new TileUsage(blanks, newTiles);
-    }
-
-    private void consumeTilesForPlacement(Player player, Placement placement, TileUsage usage) {
-        int r = placement.getRow();
-        int c = placement.getCol();
-        for (int i = 0; i < placement.getWord().length(); i++) {
-            if (board.getCell(r, c) == Board.EMPTY) {
-                if (usage.isBlankAt(i)) {
-                    if (player.takeTile(Letter.BLANK) == null) {
-                        throw new IllegalStateException("Expected blank tile not found.");
-                    }
-                } else {
-                    Letter needed = letterFor(placement.getWord().charAt(i));
-                    if (player.takeTile(needed) == null) {
-                        throw new IllegalStateException("Tile missing during placement: " + needed);
-                    }
-                }
-            }
-            if (placement.getDirection() == Placement.Direction.ACROSS) {
-                c++;
-            } else {
-                r++;
-            }
-        }
-    }
-
-    private void applyPlacement(Placement placement, TileUsage usage) {
-        int r = placement.getRow();
-        int c = placement.getCol();
-        for (int i = 0; i < placement.getWord().length(); i++) {
-            boolean squareEmpty = board.getCell(r, c) == Board.EMPTY;
-            if (squareEmpty) {
-                blankSquares[r][c] = usage.isBlankAt(i);
-            }
-            if (placement.getDirection() == Placement.Direction.ACROSS) {
-                c++;
-            } else {
-                r++;
-            }
-        }
-        board.place(placement);
-    }
-
-    private int scorePlacement(Placement placement, TileUsage usage) {
-        int r = placement.getRow();
-        int c = placement.getCol();
-        int total = 0;
-        int wordMultiplier = 1;
-        for (int i = 0; i < placement.getWord().length(); i++) {
-            boolean squareEmpty = board.getCell(r, c) == Board.EMPTY;
-            int letterScore;
-            if (squareEmpty) {
-                letterScore = usage.isBlankAt(i) ? 0 : letterFor(placement.getWord().charAt(i)).getPoints();
-            } else {
-                letterScore = blankSquares[r][c] ? 0 : letterFor(board.getCell(r, c)).getPoints();
-            }
-            PremiumSquare premium = premiumSquares[r][c];
-            if (squareEmpty) {
-                letterScore *= premium.letterMultiplier();
-                wordMultiplier *= premium.wordMultiplier();
-            }
-            total += letterScore;
-            if (placement.getDirection() == Placement.Direction.ACROSS) {
-                c++;
-            } else {
-                r++;
-            }
-        }
-        if (usage.getNewTileCount() == 7) {
-            total += 50;
-        }
-        return total * wordMultiplier;
-    }
-
-    private Letter letterFor(char ch) {
-        return Letter.valueOf(String.valueOf(Character.toUpperCase(ch)));
-    }
-
-    private PremiumSquare[][] copyPremiums() {
-        PremiumSquare[][] copy = new PremiumSquare[premiumSquares.length][premiumSquares[0].length];
-        for (int r = 0; r < premiumSquares.length; r++) {
-            System.arraycopy(premiumSquares[r], 0, copy[r], 0, premiumSquares[r].length);
-        }
-        return copy;
-    }
-
     private boolean[][] copyBlanks() {
         boolean[][] copy = new boolean[blankSquares.length][blankSquares[0].length];
         for (int r = 0; r < blankSquares.length; r++) {
@@ -350,33 +386,17 @@ public class Scrabble_Model {
         }
     }
 
-    private static final class TileUsage {
-        private final List<Boolean> blanks;
-        private final int newTileCount;
-
-        TileUsage(List<Boolean> blanks, int newTileCount) {
-            this.blanks = blanks;
-            this.newTileCount = newTileCount;
-        }
-
-        boolean isBlankAt(int index) {
-            return Boolean.TRUE.equals(blanks.get(index));
-        }
-
-        int getNewTileCount() {
-            return newTileCount;
-        }
-    }
-
     private static final class GameState implements Serializable {
-        private static final long serialVersionUID = 1L;
+        private static final long serialVersionUID = 6L;
         private final char[][] grid;
         private final boolean[][] blanks;
         private final List<PlayerState> players;
-        private final List<Letter> bagLetters;
+        private final int[] bagCounts;
+        private final long bagRandomState;
         private final int currentPlayerIndex;
-        private final PremiumSquare[][] premiums;
-        private final String boardName;
+        private final CompiledLayout layout;
+        private final int[] unseenCounts;
+        private final long seed;
 
         GameState(Scrabble_Model model) {
             this.grid = model.board.snapshot();
@@ -385,26 +405,38 @@ public class Scrabble_Model {
             for (Player player : model.players) {
                 players.add(new PlayerState(player));
             }
-            this.bagLetters = model.tileBag.snapshotLetters();
+            this.bagCounts = new int[TileCounts.LETTERS];
+            model.tileBag.copyCounts(bagCounts);
+            this.bagRandomState = model.tileBag.getRandomState();
             this.currentPlayerIndex = model.currentPlayerIndex;
-            this.premiums = model.copyPremiums();
-            this.boardName = model.boardName;
+            this.layout = model.layout;
+            this.unseenCounts = model.unseen.snapshot();
+            this.seed = model.seed;
         }
 
         void restore(Scrabble_Model model) {
+            model.layout = layout;
+            if (model.board.size() != grid.length) {
+                model.board = new Board(grid.length);
+            }
             model.board.restore(grid);
+            model.rules.sync(model.board.grid);
+            if (model.exposure.getLayout() != model.layout) {
+                model.exposure = new ExposureMap(model.layout);
+            }
+            model.exposure.rebuild(model.board.grid);
+            model.unseen.restore(unseenCounts);
             model.blankSquares = model.copyBlanksTemplate(blanks);
             model.players.clear();
             for (PlayerState state : players) {
                 Player player = new Player(state.name);
                 player.setScore(state.score);
-                player.setRack(state.letters);
+                player.getRack().set(state.rackLow, state.rackHigh);
                 model.players.add(player);
             }
-            model.tileBag.restoreFromLetters(bagLetters);
+            model.tileBag.restore(bagCounts, bagRandomState);
             model.currentPlayerIndex = Math.min(currentPlayerIndex, Math.max(0, model.players.size() - 1));
-            model.premiumSquares = model.copyPremiumsTemplate(premiums);
-            model.boardName = boardName;
+            model.seed = seed;
         }
     }
 
@@ -416,54 +448,67 @@ public class Scrabble_Model {
         return copy;
     }
 
-    private PremiumSquare[][] copyPremiumsTemplate(PremiumSquare[][] source) {
-        PremiumSquare[][] copy = new PremiumSquare[source.length][source[0].length];
-        for (int r = 0; r < source.length; r++) {
-            System.arraycopy(source[r], 0, copy[r], 0, source[r].length);
-        }
-        return copy;
-    }
-
     private static final class PlayerState implements Serializable {
-        private static final long serialVersionUID = 1L;
+        private static final long serialVersionUID = 2L;
         private final String name;
         private final int score;
-        private final List<Letter> letters;
+        private final long rackLow;
+        private final long rackHigh;
 
         PlayerState(Player player) {
             this.name = player.getName();
             this.score = player.getScore();
-            this.letters = player.snapshotRack();
+            this.rackLow = player.getRack().lowBits();
+            this.rackHigh = player.getRack().highBits();
         }
     }
 
     public static class Board {
+        /** Standard board size. Layouts may choose any size up to {@link #MAX_SIZE}. */
         public static final int SIZE = 15;
+        /** Largest supported size; rows are labelled A-Z. */
+        public static final int MAX_SIZE = 26;
         public static final char EMPTY = '\0';
-        private final char[][] grid = new char[SIZE][SIZE];
+        private final int size;
+        private final char[][] grid;
+
+        public Board() {
+            this(SIZE);
+        }
 
-        public Board() {}
+        public Board(int size) {
+            if (size < 1 || size > MAX_SIZE) {
+                throw new IllegalArgumentException("Board size must be between 1 and " + MAX_SIZE + ".");
+            }
+            this.size = size;
+            this.grid = new char[size][size];
+        }
+
+        public int size() {
+            return size;
+        }
 
         public void reset() {
-            for (int r = 0; r < SIZE; r++) {
-                for (int c = 0; c < SIZE; c++) {
-                    grid[r][c] = EMPTY;
-                }
+            for (char[] row : grid) {
+                Arrays.fill(row, EMPTY);
             }
         }
 
         public String render() {
-            StringBuilder sb = new StringBuilder();
+            StringBuilder sb = new StringBuilder((size + 1) * (2 * size + 5));
             sb.append("    ");
-            for (int col = 1; col <= SIZE; col++) {
-                sb.append(col < 10 ? " " + col + " " : col + " ");
+            for (int col = 1; col <= size; col++) {
+                if (col < 10) {
+                    sb.append(' ');
+                }
+                sb.append(col).append(' ');
             }
             sb.append("\n");
-            for (int row = 0; row < SIZE; row++) {
+            for (int row = 0; row < size; row++) {
                 char rowLabel = (char) ('A' + row);
                 sb.append(rowLabel).append(" | ");
-                for (int col = 0; col < SIZE; col++) {
-                    sb.append(grid[row][col] == EMPTY ? ". " : grid[row][col] + " ");
+                for (int col = 0; col < size; col++) {
+                    sb.append(grid[row][col] == EMPTY ? '.' : grid[row][col]).append(' ');
                 }
                 sb.append("\n");
             }
@@ -471,7 +516,7 @@ public class Scrabble_Model {
         }
 
         public boolean inBounds(int row, int col) {
-            return row >= 0 && row < SIZE && col >= 0 && col < SIZE;
+            return row >= 0 && row < size && col >= 0 && col < size;
         }
 
         public boolean canPlace(Placement p, StringBuilder reason) {
@@ -512,16 +557,19 @@ public class Scrabble_Model {
         }
 
         public char[][] snapshot() {
-            char[][] copy = new char[SIZE][SIZE];
-            for (int r = 0; r < SIZE; r++) {
-                System.arraycopy(grid[r], 0, copy[r], 0, SIZE);
+            char[][] copy = new char[size][];
+            for (int r = 0; r < size; r++) {
+                copy[r] = grid[r].clone();
             }
             return copy;
         }
 
         public void restore(char[][] state) {
-            for (int r = 0; r < SIZE; r++) {
-                System.arraycopy(state[r], 0, grid[r], 0, SIZE);
+            if (state.length != size) {
+                throw new IllegalArgumentException("Snapshot is " + state.length + " rows, board is " + size + ".");
+            }
+            for (int r = 0; r < size; r++) {
+                System.arraycopy(state[r], 0, grid[r], 0, size);
             }
         }
     }
@@ -544,97 +592,116 @@ public class Scrabble_Model {
     }
 
     public static class TileBag {
-        private final List<Tile> tiles;
-        public TileBag() {
-            tiles = new ArrayList<>();
+        static final String DISTRIBUTION = "Compact";
+        private static final Letter[] LETTERS = Letter.values();
+        private final TileCounts tiles;
+        private final GameRandom random;
+        public TileBag() { this(GameRandom.newSeed()); }
+        public TileBag(long seed) {
+            tiles = new TileCounts();
+            random = new GameRandom(seed);
             initializeTileBag();
         }
+        private TileBag(TileBag source) {
+            tiles = source.tiles.copy();
+            random = new GameRandom(source.random.getState());
+        }
+        /** Deals from the 40-tile "Compact" set in {@code alphabets/english.xml}. */
         private void initializeTileBag() {
-            tiles.clear();
-            tiles.add(new Tile(Letter.J));
-            tiles.add(new Tile(Letter.K));
-            tiles.add(new Tile(Letter.Q));
-            tiles.add(new Tile(Letter.X));
-            tiles.add(new Tile(Letter.Z));
-            for (int i = 0; i < 2; i++) {
-                tiles.add(new Tile(Letter.B));
-                tiles.add(new Tile(Letter.C));
-                tiles.add(new Tile(Letter.F));
-                tiles.add(new Tile(Letter.H));
-                tiles.add(new Tile(Letter.M));
-                tiles.add(new Tile(Letter.P));
-                tiles.add(new Tile(Letter.V));
-                tiles.add(new Tile(Letter.W));
-                tiles.add(new Tile(Letter.Y));
-                tiles.add(new Tile(Letter.BLANK));
-            }
-            for (int i = 0; i < 3; i++) tiles.add(new Tile(Letter.G));
-            for (int i = 0; i < 12; i++) tiles.add(new Tile(Letter.E));
-            Collections.shuffle(tiles);
+            tiles.restore(Alphabet.english().distribution(DISTRIBUTION));
         }
         public Tile dealTile() {
             if (tiles.isEmpty()) throw new IllegalStateException("Tile bag empty");
-            return tiles.remove(tiles.size() - 1);
+            return Tile.of(LETTERS[tiles.draw(random)]);
         }
         public boolean isEmpty() { return tiles.isEmpty(); }
-        public int size() { return tiles.size(); }
+        public int size() { return tiles.total(); }
+        public int countOf(Letter letter) { return tiles.count(letter.ordinal()); }
+        /** Copies the unseen per-letter counts, indexed by {@link Letter#ordinal()}. */
+        public void copyCounts(int[] target) { tiles.copyInto(target); }
+        public TileBag copy() { return new TileBag(this); }
+        public long getRandomState() { return random.getState(); }
+        /** Restores counts and random state so later draws repeat exactly. */
+        public void restore(int[] counts, long randomState) {
+            tiles.restore(counts);
+            random.setState(randomState);
+        }
         public List<Letter> snapshotLetters() {
-            List<Letter> letters = new ArrayList<>();
-            for (Tile tile : tiles) {
-                letters.add(tile.getLetter());
+            List<Letter> letters = new ArrayList<>(tiles.total());
+            for (int i = 0; i < TileCounts.LETTERS; i++) {
+                for (int n = tiles.count(i); n > 0; n--) {
+                    letters.add(LETTERS[i]);
+                }
             }
             return letters;
         }
         public void restoreFromLetters(List<Letter> letters) {
             tiles.clear();
             for (Letter letter : letters) {
-                tiles.add(new Tile(letter));
+                tiles.add(letter.ordinal());
             }
         }
     }
 
     public static class Player {
+        private static final Letter[] LETTERS = Letter.values();
         private String name;
         private int score;
-        private final List<Tile> hand;
-        public Player(String name) { this.name = name; score = 0; hand = new ArrayList<>(); }
+        private final Rack rack = new Rack();
+        private List<Tile> handView;
+        private int handViewModCount = -1;
+        public Player(String name) { this.name = name; score = 0; }
         public String getName() { return name; }
         public int getScore() { return score; }
-        public List<Tile> getHand() { return Collections.unmodifiableList(hand); }
+        /** @return tiles in letter order, rebuilt lazily from the packed rack when it changes. */
+        public List<Tile> getHand() {
+            if (handViewModCount != rack.modCount()) {
+                List<Tile> tiles = new ArrayList<>(rack.size());
+                for (int letter = 0; letter < TileCounts.LETTERS; letter++) {
+                    for (int n = rack.count(letter); n > 0; n--) {
+                        tiles.add(Tile.of(LETTERS[letter]));
+                    }
+                }
+                handView = Collections.unmodifiableList(tiles);
+                handViewModCount = rack.modCount();
+            }
+            return handView;
+        }
+        /** @return the live packed rack, for allocation-free rack checks. */
+        public Rack getRack() { return rack; }
         public List<Letter> snapshotRack() {
-            List<Letter> letters = new ArrayList<>();
-            for (Tile tile : hand) {
+            List<Letter> letters = new ArrayList<>(rack.size());
+            for (Tile tile : getHand()) {
                 letters.add(tile.getLetter());
             }
             return letters;
         }
         public void setRack(List<Letter> letters) {
-            hand.clear();
+            rack.clear();
             for (Letter letter : letters) {
-                hand.add(new Tile(letter));
+                rack.add(letter.ordinal());
             }
         }
-        public void addTile(Tile tile) { hand.add(tile); }
-        public void removeTile(Tile tile) { hand.remove(tile); }
-        public void clearHand() { hand.clear(); }
-        public int handSize() { return hand.size(); }
+        public void addTile(Tile tile) { rack.add(tile.getLetter().ordinal()); }
+        public void removeTile(Tile tile) { rack.take(tile.getLetter().ordinal()); }
+        public void clearHand() { rack.clear(); }
+        public int handSize() { return rack.size(); }
         public void addPoints(int pts) { score += pts; }
         public void setScore(int value) { score = value; }
         public Tile takeTile(Letter letter) {
-            for (int i = 0; i < hand.size(); i++) {
-                Tile tile = hand.get(i);
-                if (tile.getLetter() == letter) {
-                    hand.remove(i);
-                    return tile;
-                }
-            }
-            return null;
+            return rack.take(letter.ordinal()) ? Tile.of(letter) : null;
         }
     }
 
     public static class Tile {
+        private static final Tile[] SHARED = new Tile[Letter.values().length];
+        static {
+            for (Letter letter : Letter.values()) SHARED[letter.ordinal()] = new Tile(letter);
+        }
         private final Letter letter;
         public Tile(Letter letter) { this.letter = letter; }
+        /** @return the shared immutable tile for the letter; avoids per-draw allocation. */
+        public static Tile of(Letter letter) { return SHARED[letter.ordinal()]; }
         public Letter getLetter() { return letter; }
         public int getPoints() { return letter.getPoints(); }
         @Override public String toString() { return letter.toString() + ": " + getPoints(); }
@@ -674,6 +741,8 @@ public class Scrabble_Model {
             if (word == null) return false;
             return words.contains(word.toUpperCase(Locale.ROOT));
         }
+        /** @return every word, upper-cased, as a read-only view. */
+        public Set<String> words() { return Collections.unmodifiableSet(words); }
     }
 }
 
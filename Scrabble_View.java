@@ -5,6 +5,7 @@ import java.util.List;
 
 public class Scrabble_View extends JFrame {
     private JPanel boardPanel;
+    private JButton[][] boardCells = new JButton[0][0];
     private JPanel playerTilesPanel;
     private JPanel controlPanel;
     private JButton placeWordButton;
@@ -68,7 +69,7 @@ public class Scrabble_View extends JFrame {
     }
 
     private void setupUI() {
-        boardPanel = new JPanel(new GridLayout(15,15));
+        boardPanel = new JPanel(new GridLayout(Scrabble_Model.Board.SIZE, Scrabble_Model.Board.SIZE));
         boardPanel.setBorder(BorderFactory.createTitledBorder("Scrabble Board"));
         add(boardPanel, BorderLayout.CENTER);
 
@@ -109,13 +110,36 @@ public class Scrabble_View extends JFrame {
         add(controlPanel, BorderLayout.EAST);
     }
 
+    /**
+     * Shows the board. The cell buttons are built once per board size and
+     * afterwards only cells whose letter changed are updated, so refreshing
+     * a 21x21 board costs no more than the squares that moved.
+     */
     public void displayBoard(Scrabble_Model.Board board) {
-        boardPanel.removeAll();
-        for (int row = 0; row < Scrabble_Model.Board.SIZE; row++)
-            for (int col = 0; col < Scrabble_Model.Board.SIZE; col++) {
+        int size = board.size();
+        if (boardCells.length != size) {
+            buildBoardCells(size);
+        }
+        for (int row = 0; row < size; row++)
+            for (int col = 0; col < size; col++) {
                 char value = board.getCell(row, col);
-                JButton cell = new JButton(value == '\0' ? "." : "" + value);
+                String text = value == '\0' ? "." : String.valueOf(value);
+                JButton cell = boardCells[row][col];
+                if (!text.equals(cell.getText())) {
+                    cell.setText(text);
+                }
+            }
+    }
+
+    private void buildBoardCells(int size) {
+        boardPanel.removeAll();
+        boardPanel.setLayout(new GridLayout(size, size));
+        boardCells = new JButton[size][size];
+        for (int row = 0; row < size; row++)
+            for (int col = 0; col < size; col++) {
+                JButton cell = new JButton(".");
                 cell.setEnabled(false);
+                boardCells[row][col] = cell;
                 boardPanel.add(cell);
             }
         boardPanel.revalidate();
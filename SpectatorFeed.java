@@ -0,0 +1,335 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Broadcasts the accepted moves of one hosted game to any number of
+ * observers.
+ *
+ * Each move becomes a {@link Diff}: the squares that gained tiles, the
+ * change in every score, the bag size and whose turn it is. Diffs go into a
+ * fixed ring shared by all observers, and each {@link Spectator} is only a
+ * cursor into it, so the game writes once however many people watch and no
+ * diff is copied per observer. An observer that has missed several moves
+ * gets them merged into one diff. One that is new, or has fallen more than a
+ * ring's worth behind, gets a full {@link GameHost.GameView} instead.
+ *
+ * Publishing a move costs only the move: the game hands over the placed
+ * squares, their letters and the scores, never a view of the whole game.
+ * Full views are built on the observer's thread when one asks for a resync,
+ * by applying the ring's diffs to a baseline view. The writer moves that
+ * baseline forward once per ring's worth of moves, just before it would
+ * overwrite the diffs the baseline needs.
+ *
+ * The game's actor is the only writer. It overwrites old slots and never
+ * waits on observers, so a slow viewer cannot stall a fast game. Observers
+ * poll from their own threads; a single spectator is not thread-safe.
+ * Observers that are done {@link Spectator#close() close} their spectator,
+ * so the owner can tell from {@link #hasWatchers} when to stop publishing.
+ */
+public final class SpectatorFeed {
+    /** Diffs kept for observers that are behind. */
+    public static final int DEFAULT_CAPACITY = 64;
+
+    private final AtomicReferenceArray<Diff> ring;
+    private final int mask;
+    private final int size;
+    private final AtomicInteger watchers = new AtomicInteger();
+    private volatile long sequence;
+    private volatile Published baseline;
+    /** Scores after the latest move; touched by the writer only. */
+    private int[] scores;
+
+    /** Creates a feed whose observers start from {@code initial}. */
+    public SpectatorFeed(GameHost.GameView initial) {
+        this(initial, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity diffs kept before lagging observers fall back to a
+     *                 full view, rounded up to a power of two
+     */
+    public SpectatorFeed(GameHost.GameView initial, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        int slots = Integer.highestOneBit(capacity);
+        if (slots < capacity) {
+            slots <<= 1;
+        }
+        this.ring = new AtomicReferenceArray<>(slots);
+        this.mask = slots - 1;
+        this.baseline = new Published(0, Objects.requireNonNull(initial, "initial"));
+        this.size = initial.rows().size();
+        this.scores = toArray(initial.scores());
+    }
+
+    /**
+     * Records a move. Called by the game's actor only, after the move was
+     * applied.
+     *
+     * @param placedSquares squares that gained tiles, see {@link Game#getLastPlacedSquares()}
+     * @param letters letter now on each placed square, in the same order
+     * @param scores every player's score after the move, in seating order
+     * @param tilesRemaining tiles left in the bag
+     * @param currentPlayer name of the player to act next
+     */
+    public void publish(int[] placedSquares, char[] letters, int[] scores, int tilesRemaining,
+                        String currentPlayer, boolean gameOver) {
+        long next = sequence + 1;
+        int[] deltas = new int[scores.length];
+        for (int i = 0; i < deltas.length; i++) {
+            deltas[i] = scores[i] - this.scores[i];
+        }
+        this.scores = scores.clone();
+        Published base = baseline;
+        if (next - base.sequence > mask + 1) {
+            // The slot about to be written holds the first diff the baseline needs.
+            baseline = new Published(next - 1, new GameHost.GameView(base.view, merge(base.sequence, next - 1)));
+        }
+        ring.set((int) (next & mask), new Diff(next - 1, next, size, placedSquares.clone(), letters.clone(), deltas,
+                tilesRemaining, currentPlayer, gameOver));
+        sequence = next;
+    }
+
+    /**
+     * Same as {@link #publish(int[], char[], int[], int, String, boolean)}
+     * for a caller that already holds a view of the game after the move.
+     */
+    public void publish(int[] placedSquares, GameHost.GameView view) {
+        char[] letters = new char[placedSquares.length];
+        for (int i = 0; i < placedSquares.length; i++) {
+            letters[i] = view.rows().get(placedSquares[i] / size).charAt(placedSquares[i] % size);
+        }
+        publish(placedSquares, letters, toArray(view.scores()), view.tilesRemaining(), view.currentPlayer(),
+                view.gameOver());
+    }
+
+    /** @return sequence number of the latest move, 0 before the first. */
+    public long sequence() {
+        return sequence;
+    }
+
+    /** @return a new observer whose first update is a full view. */
+    public Spectator subscribe() {
+        watchers.incrementAndGet();
+        return new Spectator();
+    }
+
+    /** @return true while at least one spectator is subscribed and not closed. */
+    public boolean hasWatchers() {
+        return watchers.get() > 0;
+    }
+
+    /**
+     * @return the diffs after {@code from} up to {@code to} merged into one,
+     *         or null when the ring no longer holds all of them
+     */
+    private Diff merge(long from, long to) {
+        Diff merged = null;
+        for (long next = from + 1; next <= to; next++) {
+            Diff diff = ring.get((int) (next & mask));
+            if (diff == null || diff.from != next - 1) {
+                return null;
+            }
+            merged = merged == null ? diff : merged.then(diff);
+        }
+        return merged;
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        int[] array = new int[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+
+    /** A view and the sequence it was taken at, published together. */
+    private static final class Published {
+        private final long sequence;
+        private final GameHost.GameView view;
+
+        Published(long sequence, GameHost.GameView view) {
+            this.sequence = sequence;
+            this.view = view;
+        }
+    }
+
+    /** One observer's position in the feed. */
+    public final class Spectator implements AutoCloseable {
+        private long cursor = -1;
+        private boolean closed;
+
+        private Spectator() {
+        }
+
+        /**
+         * @return everything since the last poll as one diff or, for a new or
+         *         lagging observer, a full view; null when nothing has changed
+         */
+        public Update poll() {
+            long head = sequence;
+            if (cursor == head) {
+                return null;
+            }
+            if (cursor >= 0 && head - cursor <= mask + 1) {
+                Diff merged = merge(cursor, head);
+                if (merged != null) {
+                    cursor = head;
+                    return new Update(merged, null);
+                }
+            }
+            return resync();
+        }
+
+        /** Stops watching; the spectator must not be polled afterwards. */
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                watchers.decrementAndGet();
+            }
+        }
+
+        /** @return sequence of the last state this observer has seen, -1 before the first poll. */
+        public long sequence() {
+            return cursor;
+        }
+
+        /** Builds the latest view from the baseline, retrying if the writer moves the ring on meanwhile. */
+        private Update resync() {
+            while (true) {
+                Published base = baseline;
+                long head = sequence;
+                if (base.sequence == head) {
+                    cursor = head;
+                    return new Update(null, base.view);
+                }
+                Diff merged = merge(base.sequence, head);
+                if (merged != null) {
+                    cursor = head;
+                    return new Update(null, new GameHost.GameView(base.view, merged));
+                }
+            }
+        }
+    }
+
+    /** What an observer receives from {@link Spectator#poll()}: a diff or a full view. */
+    public static final class Update {
+        private final Diff diff;
+        private final GameHost.GameView snapshot;
+
+        private Update(Diff diff, GameHost.GameView snapshot) {
+            this.diff = diff;
+            this.snapshot = snapshot;
+        }
+
+        /** @return true when this update is a full view rather than a diff. */
+        public boolean isSnapshot() {
+            return snapshot != null;
+        }
+
+        /** @return the changes since the observer's last update, or null for a snapshot. */
+        public Diff diff() {
+            return diff;
+        }
+
+        /** @return the full state, or null for a diff. */
+        public GameHost.GameView snapshot() {
+            return snapshot;
+        }
+    }
+
+    /**
+     * Changes between two sequence numbers of a game. Shared by every
+     * observer, so it is never modified after construction.
+     */
+    public static final class Diff {
+        private final long from;
+        private final long to;
+        private final int size;
+        private final int[] squares;
+        private final char[] letters;
+        private final int[] scoreDeltas;
+        private final int tilesRemaining;
+        private final String currentPlayer;
+        private final boolean gameOver;
+
+        private Diff(long from, long to, int size, int[] squares, char[] letters, int[] scoreDeltas,
+                     int tilesRemaining, String currentPlayer, boolean gameOver) {
+            this.from = from;
+            this.to = to;
+            this.size = size;
+            this.squares = squares;
+            this.letters = letters;
+            this.scoreDeltas = scoreDeltas;
+            this.tilesRemaining = tilesRemaining;
+            this.currentPlayer = currentPlayer;
+            this.gameOver = gameOver;
+        }
+
+        /** @return this diff followed by {@code next}, as one diff. */
+        private Diff then(Diff next) {
+            int[] joinedSquares = Arrays.copyOf(squares, squares.length + next.squares.length);
+            System.arraycopy(next.squares, 0, joinedSquares, squares.length, next.squares.length);
+            char[] joinedLetters = Arrays.copyOf(letters, letters.length + next.letters.length);
+            System.arraycopy(next.letters, 0, joinedLetters, letters.length, next.letters.length);
+            int[] deltas = scoreDeltas.clone();
+            for (int i = 0; i < deltas.length; i++) {
+                deltas[i] += next.scoreDeltas[i];
+            }
+            return new Diff(from, next.to, size, joinedSquares, joinedLetters, deltas,
+                    next.tilesRemaining, next.currentPlayer, next.gameOver);
+        }
+
+        /** @return sequence number this diff starts from. */
+        public long fromSequence() {
+            return from;
+        }
+
+        /** @return sequence number reached after applying this diff. */
+        public long toSequence() {
+            return to;
+        }
+
+        /** @return number of squares that gained tiles. */
+        public int changedCells() {
+            return squares.length;
+        }
+
+        /** @return row of changed cell {@code index}. */
+        public int rowAt(int index) {
+            return squares[index] / size;
+        }
+
+        /** @return column of changed cell {@code index}. */
+        public int colAt(int index) {
+            return squares[index] % size;
+        }
+
+        /** @return letter placed on changed cell {@code index}. */
+        public char letterAt(int index) {
+            return letters[index];
+        }
+
+        /** @return points gained by player {@code player}, in seating order. */
+        public int scoreDelta(int player) {
+            return scoreDeltas[player];
+        }
+
+        public int tilesRemaining() {
+            return tilesRemaining;
+        }
+
+        public String currentPlayer() {
+            return currentPlayer;
+        }
+
+        public boolean gameOver() {
+            return gameOver;
+        }
+    }
+}
@@ -2,6 +2,14 @@
  * Represents an individual letter tile.
  */
 public class Tile {
+    private static final Tile[] SHARED = new Tile[Letter.values().length];
+
+    static {
+        for (Letter letter : Letter.values()) {
+            SHARED[letter.ordinal()] = new Tile(letter);
+        }
+    }
+
     private final Letter letter;
 
     /**
@@ -13,6 +21,17 @@ public class Tile {
         this.letter = letter;
     }
 
+    /**
+     * Tiles are immutable, so one shared instance per letter serves every
+     * bag and rack without allocating.
+     *
+     * @param letter The letter wanted.
+     * @return The shared tile for that letter.
+     */
+    public static Tile of(Letter letter) {
+        return SHARED[letter.ordinal()];
+    }
+
     /** @return The letter on the tile. */
     public Letter getLetter() {
         return this.letter;
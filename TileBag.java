@@ -1,83 +1,59 @@
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 /**
  * Represents the bag that players draw tiles from.
+ *
+ * The bag only keeps a count per letter. Each draw picks a random tile from
+ * those counts, so dealing never allocates and copying a bag is an array copy.
  */
 public class TileBag {
-    private final List<Tile> tiles;
+    private static final Letter[] LETTERS = Letter.values();
+    /** Name of the distribution in {@code alphabets/english.xml} this bag is filled from. */
+    static final String DISTRIBUTION = "Standard";
 
+    private final TileCounts tiles;
+    private final long seed;
+    private final GameRandom random;
+
+    /** Creates a bag drawing from a fresh random seed. */
     public TileBag() {
-        this.tiles = new ArrayList<>();
-        initializeTileBag();
+        this(GameRandom.newSeed());
     }
 
     /**
-     * Adds the full Scrabble tile set and shuffles the draw order.
+     * Creates a bag whose draw order is fully determined by the seed.
+     *
+     * @param seed seed for the draws; record it to replay the game
      */
-    private void initializeTileBag() {
-        tiles.clear();
-
-        tiles.add(new Tile(Letter.J));
-        tiles.add(new Tile(Letter.K));
-        tiles.add(new Tile(Letter.Q));
-        tiles.add(new Tile(Letter.X));
-        tiles.add(new Tile(Letter.Z));
-
-        for (int i = 0; i < 2; i++) {
-            tiles.add(new Tile(Letter.B));
-            tiles.add(new Tile(Letter.C));
-            tiles.add(new Tile(Letter.F));
-            tiles.add(new Tile(Letter.H));
-            tiles.add(new Tile(Letter.M));
-            tiles.add(new Tile(Letter.P));
-            tiles.add(new Tile(Letter.V));
-            tiles.add(new Tile(Letter.W));
-            tiles.add(new Tile(Letter.Y));
-            tiles.add(new Tile(Letter.BLANK));
-        }
-
-        for (int i = 0; i < 3; i++) {
-            tiles.add(new Tile(Letter.G));
-        }
-
-        for (int i = 0; i < 4; i++) {
-            tiles.add(new Tile(Letter.D));
-            tiles.add(new Tile(Letter.L));
-            tiles.add(new Tile(Letter.S));
-            tiles.add(new Tile(Letter.U));
-        }
-
-        for (int i = 0; i < 6; i++) {
-            tiles.add(new Tile(Letter.N));
-            tiles.add(new Tile(Letter.R));
-            tiles.add(new Tile(Letter.T));
-        }
-
-        for (int i = 0; i < 8; i++) {
-            tiles.add(new Tile(Letter.O));
-        }
-
-        for (int i = 0; i < 9; i++) {
-            tiles.add(new Tile(Letter.A));
-            tiles.add(new Tile(Letter.I));
-        }
+    public TileBag(long seed) {
+        this.tiles = new TileCounts();
+        this.seed = seed;
+        this.random = new GameRandom(seed);
+        initializeTileBag();
+    }
 
-        for (int i = 0; i < 12; i++) {
-            tiles.add(new Tile(Letter.E));
-        }
+    private TileBag(TileBag source) {
+        this.tiles = source.tiles.copy();
+        this.seed = source.seed;
+        this.random = new GameRandom(source.random.getState());
+    }
 
-        shuffle();
+    /** @return the seed this bag was created with. */
+    public long getSeed() {
+        return seed;
     }
 
-    /** Randomizes the tile order. */
-    public void shuffle() {
-        Collections.shuffle(tiles);
+    /**
+     * Fills the bag with the standard 100-tile English set from
+     * {@code alphabets/english.xml}.
+     */
+    private void initializeTileBag() {
+        tiles.restore(Alphabet.english().distribution(DISTRIBUTION));
     }
 
     /**
-     * Removes and returns one tile from the bag.
+     * Removes and returns one random tile from the bag.
      *
      * @return The drawn tile.
      */
@@ -85,7 +61,7 @@ public class TileBag {
         if (tiles.isEmpty()) {
             throw new IllegalStateException("Cannot deal from an empty tile bag.");
         }
-        return tiles.remove(tiles.size() - 1);
+        return Tile.of(LETTERS[tiles.draw(random)]);
     }
 
     /** @return true when no tiles remain. */
@@ -95,6 +71,61 @@ public class TileBag {
 
     /** @return number of tiles left. */
     public int size() {
-        return tiles.size();
+        return tiles.total();
+    }
+
+    /** @return how many tiles of the letter are still in the bag. */
+    public int countOf(Letter letter) {
+        return tiles.count(letter.ordinal());
+    }
+
+    /**
+     * Copies the per-letter counts of the unseen bag contents, indexed by
+     * {@link Letter#ordinal()}, into {@code target}.
+     */
+    public void copyCounts(int[] target) {
+        tiles.copyInto(target);
+    }
+
+    /** @return an independent bag with the same contents and random state. */
+    public TileBag copy() {
+        return new TileBag(this);
+    }
+
+    /** @return the random state, to be saved alongside the counts. */
+    public long getRandomState() {
+        return random.getState();
+    }
+
+    /**
+     * Restores contents and random state captured by {@link #copyCounts(int[])}
+     * and {@link #getRandomState()}, so later draws repeat exactly.
+     */
+    public void restore(int[] counts, long randomState) {
+        tiles.restore(counts);
+        random.setState(randomState);
+    }
+
+    /** @return the letters left in the bag, in alphabetical order. */
+    public List<Letter> snapshotLetters() {
+        List<Letter> letters = new ArrayList<>(tiles.total());
+        for (int i = 0; i < TileCounts.LETTERS; i++) {
+            for (int n = tiles.count(i); n > 0; n--) {
+                letters.add(LETTERS[i]);
+            }
+        }
+        return letters;
+    }
+
+    /**
+     * Replaces the bag contents.
+     *
+     * @param letters letters as returned by {@link #snapshotLetters()}
+     */
+    public void restoreFromLetters(List<Letter> letters) {
+        tiles.clear();
+        for (Letter letter : letters) {
+            tiles.add(letter.ordinal());
+        }
     }
 }
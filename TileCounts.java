@@ -0,0 +1,144 @@
+import java.util.Arrays;
+
+/**
+ * Multiset of tiles stored as one count per letter index plus a running total.
+ *
+ * Letter indices are those of an {@link Alphabet}, letters first and the blank
+ * last. For English they are the ordinals of {@link Letter} (A-Z, then BLANK),
+ * which match {@link Scrabble_Model.Letter}, so both bag implementations share
+ * this class. Random draws walk at most one slot per letter and never allocate;
+ * snapshots and restores are plain array copies.
+ */
+public final class TileCounts {
+    /** Number of distinct English tiles, A-Z plus the blank. */
+    public static final int LETTERS = 27;
+
+    private final int[] counts;
+    private int total;
+
+    /** Creates an empty multiset of English tiles. */
+    public TileCounts() {
+        this(LETTERS);
+    }
+
+    /**
+     * Creates an empty multiset.
+     *
+     * @param kinds number of distinct tiles, usually {@link Alphabet#tileKinds()}
+     */
+    public TileCounts(int kinds) {
+        this.counts = new int[kinds];
+    }
+
+    /** Creates a multiset holding a copy of {@code counts}. */
+    public TileCounts(int[] counts) {
+        this.counts = new int[counts.length];
+        restore(counts);
+    }
+
+    /** @return number of distinct tiles this multiset counts. */
+    public int kinds() {
+        return counts.length;
+    }
+
+    /** @return an independent copy of this multiset. */
+    public TileCounts copy() {
+        return new TileCounts(counts);
+    }
+
+    /** @return the number of tiles with the given letter index. */
+    public int count(int letter) {
+        return counts[letter];
+    }
+
+    /** @return the total number of tiles. */
+    public int total() {
+        return total;
+    }
+
+    /** @return true when no tiles remain. */
+    public boolean isEmpty() {
+        return total == 0;
+    }
+
+    /** Adds {@code amount} tiles of the given letter index. */
+    public void add(int letter, int amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("amount must not be negative");
+        }
+        counts[letter] += amount;
+        total += amount;
+    }
+
+    /** Adds one tile of the given letter index. */
+    public void add(int letter) {
+        counts[letter]++;
+        total++;
+    }
+
+    /**
+     * Removes one tile of the given letter index.
+     *
+     * @return false, leaving the multiset unchanged, when no such tile is held
+     */
+    public boolean remove(int letter) {
+        if (counts[letter] == 0) {
+            return false;
+        }
+        counts[letter]--;
+        total--;
+        return true;
+    }
+
+    /**
+     * Removes one tile chosen uniformly at random among all held tiles.
+     *
+     * @return the letter index of the removed tile
+     */
+    public int draw(GameRandom random) {
+        if (total == 0) {
+            throw new IllegalStateException("Cannot draw from an empty tile multiset.");
+        }
+        int target = random.nextInt(total);
+        int letter = 0;
+        while (target >= counts[letter]) {
+            target -= counts[letter];
+            letter++;
+        }
+        counts[letter]--;
+        total--;
+        return letter;
+    }
+
+    /** Copies the per-letter counts into {@code target}, which must hold {@link #kinds()} slots. */
+    public void copyInto(int[] target) {
+        System.arraycopy(counts, 0, target, 0, counts.length);
+    }
+
+    /** @return a fresh copy of the per-letter counts. */
+    public int[] toArray() {
+        return Arrays.copyOf(counts, counts.length);
+    }
+
+    /** Replaces the contents with the given per-letter counts. */
+    public void restore(int[] source) {
+        if (source.length != counts.length) {
+            throw new IllegalArgumentException("Expected " + counts.length + " letter counts, got " + source.length);
+        }
+        int sum = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (source[i] < 0) {
+                throw new IllegalArgumentException("Letter counts must not be negative");
+            }
+            sum += source[i];
+        }
+        System.arraycopy(source, 0, counts, 0, counts.length);
+        total = sum;
+    }
+
+    /** Empties the multiset. */
+    public void clear() {
+        Arrays.fill(counts, 0);
+        total = 0;
+    }
+}
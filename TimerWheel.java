@@ -0,0 +1,248 @@
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hashed timer wheel: one thread drives any number of one-shot timeouts.
+ *
+ * The wheel is a ring of buckets, one per tick. A timeout goes into the
+ * bucket its deadline falls in. If the deadline is more than one turn of the
+ * wheel away, it also records how many full turns to wait. Scheduling and
+ * cancelling only touch lock-free queues, so both are O(1) from any thread.
+ * The wheel thread moves new timeouts into their buckets each tick and
+ * unlinks cancelled ones from their bucket's list. Each tick it walks a
+ * single bucket. Tick times are measured from when the wheel started, not
+ * from the previous tick, so delays never accumulate. A timeout fires in the
+ * first tick that ends after its deadline. It is late by at most one tick plus
+ * the time the thread takes to wake up.
+ *
+ * Tasks run on the wheel thread and must be short; hand real work to an
+ * executor or a {@link GameActor}.
+ */
+public final class TimerWheel implements AutoCloseable {
+    /** Tick used by {@link #TimerWheel(ThreadFactory)}. */
+    public static final long DEFAULT_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    /** Buckets used by {@link #TimerWheel(ThreadFactory)}; one turn covers about a second. */
+    public static final int DEFAULT_BUCKETS = 1024;
+
+    private static final int MAX_TRANSFERS_PER_TICK = 100_000;
+
+    private final long tickNanos;
+    private final Bucket[] buckets;
+    private final int mask;
+    private final Queue<Timeout> incoming = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final long startTime;
+    private final Thread worker;
+    private volatile boolean running = true;
+    private long tick;
+
+    public TimerWheel(ThreadFactory threadFactory) {
+        this(threadFactory, DEFAULT_TICK_NANOS, DEFAULT_BUCKETS);
+    }
+
+    /**
+     * @param tickNanos length of one tick; timeouts fire at most this late
+     * @param bucketCount buckets in the ring, rounded up to a power of two
+     */
+    public TimerWheel(ThreadFactory threadFactory, long tickNanos, int bucketCount) {
+        if (tickNanos <= 0 || bucketCount < 1) {
+            throw new IllegalArgumentException("tick and bucket count must be positive");
+        }
+        int size = Integer.highestOneBit(bucketCount);
+        if (size < bucketCount) {
+            size <<= 1;
+        }
+        this.tickNanos = tickNanos;
+        this.buckets = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.startTime = System.nanoTime();
+        this.worker = threadFactory.newThread(this::run);
+        worker.start();
+    }
+
+    /**
+     * Runs {@code task} on the wheel thread once {@code delay} has passed.
+     *
+     * @return handle that can cancel the timeout
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        if (!running) {
+            throw new IllegalStateException("Timer wheel is closed.");
+        }
+        long deadline = System.nanoTime() - startTime + Math.max(0, unit.toNanos(delay));
+        Timeout timeout = new Timeout(task, deadline);
+        pending.incrementAndGet();
+        incoming.add(timeout);
+        return timeout;
+    }
+
+    /** @return timeouts scheduled but neither fired nor cancelled. */
+    public int pending() {
+        return pending.get();
+    }
+
+    /** Stops the wheel thread; timeouts that have not fired are dropped. */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(worker);
+    }
+
+    private void run() {
+        while (running) {
+            long now = waitForNextTick();
+            if (!running) {
+                break;
+            }
+            removeCancelled();
+            transferIncoming();
+            buckets[(int) (tick & mask)].expire(now);
+            tick++;
+        }
+    }
+
+    /** Sleeps until the end of the current tick and returns the time since start. */
+    private long waitForNextTick() {
+        long target = tickNanos * (tick + 1);
+        while (running) {
+            long now = System.nanoTime() - startTime;
+            if (now >= target) {
+                return now;
+            }
+            LockSupport.parkNanos(target - now);
+        }
+        return 0;
+    }
+
+    private void transferIncoming() {
+        for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+            Timeout timeout = incoming.poll();
+            if (timeout == null) {
+                return;
+            }
+            if (timeout.state.get() == Timeout.CANCELLED) {
+                continue;
+            }
+            long due = timeout.deadline / tickNanos;
+            timeout.rounds = Math.max(0, (due - tick) >> Integer.numberOfTrailingZeros(buckets.length));
+            buckets[(int) (Math.max(due, tick) & mask)].add(timeout);
+        }
+    }
+
+    private void removeCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelled.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    /** One pending timeout. */
+    public final class Timeout {
+        private static final int WAITING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+        private long rounds;
+        private Bucket bucket;
+        private Timeout next;
+        private Timeout prev;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Prevents the task from running.
+         *
+         * @return false when it already ran or was cancelled before
+         */
+        public boolean cancel() {
+            if (!state.compareAndSet(WAITING, CANCELLED)) {
+                return false;
+            }
+            pending.decrementAndGet();
+            cancelled.add(this);
+            return true;
+        }
+
+        /** @return true once the task has run. */
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+
+        private void expire() {
+            if (state.compareAndSet(WAITING, EXPIRED)) {
+                pending.decrementAndGet();
+                task.run();
+            }
+        }
+    }
+
+    /** Doubly linked list of timeouts, touched only by the wheel thread. */
+    private static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            timeout.prev = tail;
+            timeout.next = null;
+            if (tail == null) {
+                head = timeout;
+            } else {
+                tail.next = timeout;
+            }
+            tail = timeout;
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.prev == null) {
+                head = timeout.next;
+            } else {
+                timeout.prev.next = timeout.next;
+            }
+            if (timeout.next == null) {
+                tail = timeout.prev;
+            } else {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.bucket = null;
+            timeout.next = null;
+            timeout.prev = null;
+        }
+
+        void expire(long now) {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.state.get() == Timeout.CANCELLED) {
+                    remove(timeout);
+                } else if (timeout.rounds <= 0 && timeout.deadline <= now) {
+                    remove(timeout);
+                    try {
+                        timeout.expire();
+                    } catch (RuntimeException ignored) {
+                        // A failing task must not stop the wheel for everyone else.
+                    }
+                } else if (timeout.rounds > 0) {
+                    timeout.rounds--;
+                }
+                timeout = next;
+            }
+        }
+    }
+}
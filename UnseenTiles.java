@@ -0,0 +1,131 @@
+/**
+ * Tracks the tiles that are not on the board and derives, for any player,
+ * the tiles that player cannot see: the bag plus every opponent's rack.
+ *
+ * The tracker holds one count per tile index, starting from the game's
+ * distribution. Each placement subtracts the tiles it puts down (see
+ * {@link RulesKernel#removePlacedFrom}), so updates cost one decrement per
+ * tile. A player's unseen set is those counts minus their own rack, written
+ * into a caller's array. The sampler draws plausible opponent racks into a
+ * reusable {@link Rack}. Neither allocates, so simulation loops can call
+ * them every iteration. Not thread-safe; each game owns its tracker.
+ */
+public final class UnseenTiles {
+    private final TileCounts offBoard;
+    private final int[] scratch;
+
+    /**
+     * @param distribution tile counts of the full set, indexed like the alphabet with the blank last
+     */
+    public UnseenTiles(int[] distribution) {
+        this.offBoard = new TileCounts(distribution);
+        this.scratch = new int[distribution.length];
+    }
+
+    /** Removes the tiles of a move just applied through {@code rules}. */
+    public void recordPlay(RulesKernel rules) {
+        rules.removePlacedFrom(offBoard);
+    }
+
+    /** @return number of tiles not on the board. */
+    public int offBoardTotal() {
+        return offBoard.total();
+    }
+
+    /** @return a copy of the off-board counts, for snapshots. */
+    public int[] snapshot() {
+        return offBoard.toArray();
+    }
+
+    /** Replaces the off-board counts with a {@link #snapshot()}. */
+    public void restore(int[] counts) {
+        offBoard.restore(counts);
+    }
+
+    /**
+     * Recomputes the counts from scratch as {@code distribution} minus the
+     * tiles on {@code grid}, for states that were not built move by move.
+     */
+    public void rebuild(int[] distribution, char[][] grid, boolean[][] blanks, Alphabet alphabet) {
+        offBoard.restore(distribution);
+        for (int r = 0; r < grid.length; r++) {
+            for (int c = 0; c < grid[r].length; c++) {
+                if (grid[r][c] != '\0') {
+                    offBoard.remove(blanks[r][c] ? alphabet.blankIndex() : alphabet.indexOf(grid[r][c]));
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the tiles {@code viewer} cannot see into {@code target}.
+     *
+     * @param viewer rack of the player whose view is wanted
+     * @param target array with one slot per tile index
+     * @return total number of unseen tiles
+     */
+    public int unseenBy(Rack viewer, int[] target) {
+        int total = 0;
+        for (int i = 0; i < target.length; i++) {
+            target[i] = offBoard.count(i) - viewer.count(i);
+            total += target[i];
+        }
+        return total;
+    }
+
+    /**
+     * Draws a random opponent rack from the tiles {@code viewer} cannot see,
+     * without replacement, into {@code out}.
+     *
+     * @param tiles rack size to draw, capped at the number of unseen tiles
+     * @param letterWeights relative likelihood per tile index, or {@code null}
+     *                      for a uniform draw. For example, raise the weight of
+     *                      letters an opponent seems to be holding back, or
+     *                      lower it for letters they would likely have played.
+     */
+    public void sampleRack(Rack viewer, int tiles, GameRandom random, double[] letterWeights, Rack out) {
+        out.clear();
+        int remaining = unseenBy(viewer, scratch);
+        for (int drawn = 0; drawn < tiles && remaining > 0; drawn++, remaining--) {
+            int letter = letterWeights == null
+                    ? drawUniform(remaining, random)
+                    : drawWeighted(letterWeights, remaining, random);
+            scratch[letter]--;
+            out.add(letter);
+        }
+    }
+
+    private int drawUniform(int remaining, GameRandom random) {
+        int target = random.nextInt(remaining);
+        int letter = 0;
+        while (target >= scratch[letter]) {
+            target -= scratch[letter];
+            letter++;
+        }
+        return letter;
+    }
+
+    private int drawWeighted(double[] letterWeights, int remaining, GameRandom random) {
+        double total = 0;
+        int last = -1;
+        for (int i = 0; i < scratch.length; i++) {
+            if (scratch[i] > 0 && letterWeights[i] > 0) {
+                total += scratch[i] * letterWeights[i];
+                last = i;
+            }
+        }
+        if (total <= 0) {
+            return drawUniform(remaining, random);
+        }
+        double target = (random.nextLong() >>> 11) * 0x1.0p-53 * total;
+        for (int i = 0; i < scratch.length; i++) {
+            if (scratch[i] > 0 && letterWeights[i] > 0) {
+                target -= scratch[i] * letterWeights[i];
+                if (target < 0) {
+                    return i;
+                }
+            }
+        }
+        return last;
+    }
+}